@@ -0,0 +1,84 @@
+package com.example.jambo.benchmarks;
+
+import com.example.jambo.services.ArtworkCacheService;
+import com.example.jambo.services.MetadataCacheService;
+import com.example.jambo.services.MetadataService;
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+// Thumbnails are javafx Images; the software pipeline keeps decoding working on machines without a GPU.
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dprism.order=sw"})
+public class MetadataBenchmark {
+    @Param({"240"})
+    int files;
+
+    private Path root;
+    private List<File> songs;
+    private List<File> albumOpeners;
+    private MetadataService warm;
+    private MetadataService uncached;
+    private MetadataService noArtworkCache;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        root = BenchmarkFiles.tempDirectory("jambo-metadata-bench");
+        songs = Mp3Fixtures.generate(root.resolve("library"), files, 240, true);
+        albumOpeners = IntStream.range(0, songs.size()).filter(i -> i % 12 == 0).mapToObj(songs::get).toList();
+        warm = new MetadataService(new MetadataCacheService(root.resolve("warm.bin")),
+                new ArtworkCacheService(64L << 20, 100, null));
+        uncached = new MetadataService(new MetadataCacheService(root.resolve("uncached.bin")),
+                new ArtworkCacheService(64L << 20, 100, null));
+        // A one-byte budget keeps only the most recent thumbnail, so every album change decodes again.
+        noArtworkCache = new MetadataService(new MetadataCacheService(root.resolve("decode.bin")),
+                new ArtworkCacheService(1, 100, null));
+        for (File song : songs) {
+            warm.formatSongMetadata(song);
+            warm.getAlbumArt(song);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkFiles.delete(root);
+    }
+
+    private File nextSong() {
+        cursor = cursor + 1 == songs.size() ? 0 : cursor + 1;
+        return songs.get(cursor);
+    }
+
+    @Benchmark
+    public String formatSongMetadataCached() throws Exception {
+        return warm.formatSongMetadata(nextSong());
+    }
+
+    @Benchmark
+    public String formatSongMetadataUncached() throws Exception {
+        File song = nextSong();
+        uncached.invalidate(song);
+        return uncached.formatSongMetadata(song);
+    }
+
+    @Benchmark
+    public Image getAlbumArtCached() throws Exception {
+        return warm.getAlbumArt(nextSong());
+    }
+
+    @Benchmark
+    public Image getAlbumArtDecode() throws Exception {
+        cursor = cursor + 1 >= albumOpeners.size() ? 0 : cursor + 1;
+        return noArtworkCache.getAlbumArt(albumOpeners.get(cursor));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.jambo.benchmarks;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes synthetic MPEG-1 Layer III files with ID3v2.3 tags (and optionally cover art) laid out as
+ * artist/album/track folders. Usage: {@code Mp3Fixtures <folder> <count> [--artwork]}
+ */
+public final class Mp3Fixtures {
+    private static final int FRAME_LENGTH = 417;
+    private static final int TRACKS_PER_ALBUM = 12;
+    private static final int ALBUMS_PER_ARTIST = 10;
+
+    private Mp3Fixtures() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: Mp3Fixtures <folder> <count> [--artwork]");
+            System.exit(2);
+        }
+        Path root = Path.of(args[0]);
+        int count = Integer.parseInt(args[1]);
+        boolean artwork = args.length > 2 && args[2].equals("--artwork");
+        long startNanos = System.nanoTime();
+        List<File> files = generate(root, count, 240, artwork);
+        System.out.printf("Wrote %d files to %s in %d ms%n", files.size(), root,
+                (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /**
+     * Generates {@code count} files under {@code root}; each file holds {@code frames} frames of
+     * 128 kbps audio (about 26 ms per frame). Files that already exist are reused.
+     */
+    public static List<File> generate(Path root, int count, int frames, boolean artwork) throws IOException {
+        byte[] audio = audioFrames(frames);
+        List<File> files = new ArrayList<>(count);
+        byte[] cover = null;
+        for (int i = 0; i < count; i++) {
+            int album = i / TRACKS_PER_ALBUM;
+            int artist = album / ALBUMS_PER_ARTIST;
+            Path directory = root.resolve(String.format("artist-%04d/album-%05d", artist, album));
+            Path file = directory.resolve(String.format("%02d track-%07d.mp3", i % TRACKS_PER_ALBUM + 1, i));
+            files.add(file.toFile());
+            if (Files.exists(file)) {
+                continue;
+            }
+            if (artwork && i % TRACKS_PER_ALBUM == 0) {
+                cover = coverArt(album);
+            }
+            Files.createDirectories(directory);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(audio.length + 1024);
+            out.writeBytes(id3v23Tag("Artist " + artist, "Album " + album, "Track " + i, artwork ? cover : null));
+            out.writeBytes(audio);
+            Files.write(file, out.toByteArray());
+        }
+        return files;
+    }
+
+    private static byte[] audioFrames(int frames) {
+        byte[] audio = new byte[frames * FRAME_LENGTH];
+        for (int i = 0; i < frames; i++) {
+            int offset = i * FRAME_LENGTH;
+            audio[offset] = (byte) 0xFF;
+            audio[offset + 1] = (byte) 0xFB;
+            audio[offset + 2] = (byte) 0x90;
+        }
+        return audio;
+    }
+
+    private static byte[] id3v23Tag(String artist, String album, String title, byte[] cover) {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        writeTextFrame(frames, "TPE1", artist);
+        writeTextFrame(frames, "TALB", album);
+        writeTextFrame(frames, "TIT2", title);
+        if (cover != null) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(cover.length + 16);
+            body.write(0);
+            body.writeBytes("image/png".getBytes(StandardCharsets.ISO_8859_1));
+            body.write(0);
+            body.write(3);
+            body.write(0);
+            body.writeBytes(cover);
+            writeFrame(frames, "APIC", body.toByteArray());
+        }
+        int size = frames.size();
+
+        ByteArrayOutputStream tag = new ByteArrayOutputStream(size + 10);
+        tag.writeBytes(new byte[]{'I', 'D', '3', 3, 0, 0,
+                (byte) ((size >>> 21) & 0x7F), (byte) ((size >>> 14) & 0x7F),
+                (byte) ((size >>> 7) & 0x7F), (byte) (size & 0x7F)});
+        tag.writeBytes(frames.toByteArray());
+        return tag.toByteArray();
+    }
+
+    private static void writeTextFrame(ByteArrayOutputStream out, String id, String text) {
+        byte[] value = text.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] body = new byte[value.length + 1];
+        System.arraycopy(value, 0, body, 1, value.length);
+        writeFrame(out, id, body);
+    }
+
+    private static void writeFrame(ByteArrayOutputStream out, String id, byte[] body) {
+        int size = body.length;
+        out.writeBytes(id.getBytes(StandardCharsets.ISO_8859_1));
+        out.writeBytes(new byte[]{(byte) (size >>> 24), (byte) (size >>> 16), (byte) (size >>> 8), (byte) size, 0, 0});
+        out.writeBytes(body);
+    }
+
+    private static byte[] coverArt(int seed) {
+        BufferedImage image = new BufferedImage(500, 500, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            for (int band = 0; band < 10; band++) {
+                graphics.setColor(Color.getHSBColor(((seed * 37 + band * 11) % 360) / 360f, 0.6f, 0.9f));
+                graphics.fillRect(0, band * 50, 500, 50);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
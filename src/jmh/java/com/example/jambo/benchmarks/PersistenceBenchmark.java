@@ -0,0 +1,93 @@
+package com.example.jambo.benchmarks;
+
+import com.example.jambo.services.PlaylistStore;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+    @Param({"1000", "100000"})
+    int size;
+
+    private Path root;
+    private Map<String, List<String>> playlists;
+    private PlaylistStore compactStore;
+    private PlaylistStore journalStore;
+    private Path legacyJson;
+    private int appended;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = BenchmarkFiles.tempDirectory("jambo-persistence-bench");
+        List<String> paths = IntStream.range(0, size)
+                .mapToObj(i -> String.format("/music/artist-%04d/album-%05d/track-%07d.mp3", i / 120, i / 12, i))
+                .toList();
+        playlists = Map.of("Default", paths);
+
+        PlaylistStore seed = store("load");
+        seed.load();
+        seed.compact(Map.of("Default", paths.subList(0, size - size / 10)));
+        seed.addSongs("Default", paths.subList(size - size / 10, size));
+        seed.close();
+
+        compactStore = store("compact");
+        compactStore.load();
+        journalStore = store("journal");
+        journalStore.load();
+
+        legacyJson = root.resolve("saved_songs.json");
+        Files.writeString(legacyJson, new Gson().toJson(paths));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        compactStore.close();
+        journalStore.close();
+        BenchmarkFiles.delete(root);
+    }
+
+    private PlaylistStore store(String name) {
+        return new PlaylistStore(root.resolve(name + ".bin"), root.resolve(name + ".journal"), Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> loadSnapshotAndJournal() {
+        return store("load").load();
+    }
+
+    @Benchmark
+    public void compactSnapshot() {
+        compactStore.compact(playlists);
+    }
+
+    @Benchmark
+    public void appendAndSync() {
+        journalStore.addSong("Default", "/music/appended/track-" + appended++ + ".mp3");
+        journalStore.sync();
+    }
+
+    @Benchmark
+    public List<String> parseLegacyJson() throws IOException {
+        Type listType = new TypeToken<ArrayList<String>>() {}.getType();
+        try (BufferedReader reader = Files.newBufferedReader(legacyJson)) {
+            return new Gson().fromJson(reader, listType);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.jambo.benchmarks;
+
+import com.example.jambo.services.PlaylistService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PlaylistBenchmark {
+    private static final int IMPORT_SIZE = 1000;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private PlaylistService playlistService;
+    private List<File> songs;
+    private File extra;
+    private List<File> imported;
+    private int[] importedIndices;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        songs = IntStream.range(0, size)
+                .mapToObj(i -> new File(String.format("/music/artist-%04d/album-%05d/track-%07d.mp3", i / 120, i / 12, i)))
+                .toList();
+        playlistService = new PlaylistService();
+        playlistService.addSongs(songs);
+        extra = new File("/music/extra/track.mp3");
+        imported = IntStream.range(0, IMPORT_SIZE)
+                .mapToObj(i -> new File(String.format("/music/import/track-%04d.mp3", i)))
+                .toList();
+        importedIndices = IntStream.range(size, size + IMPORT_SIZE).toArray();
+    }
+
+    private File nextSong() {
+        cursor = cursor + 7919 >= size ? (cursor + 7919) % size : cursor + 7919;
+        return songs.get(cursor);
+    }
+
+    @Benchmark
+    public boolean containsSong() {
+        return playlistService.containsSong("Default", nextSong());
+    }
+
+    @Benchmark
+    public boolean addDuplicate() {
+        return playlistService.addSong(nextSong());
+    }
+
+    @Benchmark
+    public void appendAndRemoveLast() {
+        playlistService.addSong(extra);
+        playlistService.removeSong(size);
+    }
+
+    @Benchmark
+    public void removeMiddleAndAppend() {
+        int middle = size / 2;
+        File song = playlistService.getSongFile(middle);
+        playlistService.removeSong(middle);
+        playlistService.addSong(song);
+    }
+
+    // Both import benchmarks append the same folder and remove it again in one bulk call.
+    @Benchmark
+    public int importWithAddSongLoop() {
+        int added = 0;
+        for (File song : imported) {
+            if (playlistService.addSong(song)) {
+                added++;
+            }
+        }
+        playlistService.removeSongs(importedIndices);
+        return added;
+    }
+
+    @Benchmark
+    public int importWithAddSongs() {
+        int added = playlistService.addSongs(imported).size();
+        playlistService.removeSongs(importedIndices);
+        return added;
+    }
+}
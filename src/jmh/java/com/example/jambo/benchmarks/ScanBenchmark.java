@@ -0,0 +1,87 @@
+package com.example.jambo.benchmarks;
+
+import com.example.jambo.services.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScanBenchmark {
+    private static final LibraryImportService.ImportListener IGNORE = new LibraryImportService.ImportListener() {
+        @Override
+        public void onBatch(List<LibraryImportService.ImportedTrack> batch) {
+        }
+
+        @Override
+        public void onProgress(LibraryImportService.ImportProgress progress) {
+        }
+    };
+
+    @Param({"2000"})
+    int files;
+
+    private Path root;
+    private Path library;
+    private MetadataExtractionService warmExtraction;
+    private LibraryImportService warmImport;
+    private int coldRuns;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        root = BenchmarkFiles.tempDirectory("jambo-scan-bench");
+        library = root.resolve("library");
+        Mp3Fixtures.generate(library, files, 40, false);
+        warmExtraction = extraction(root.resolve("warm.bin"));
+        warmImport = importService(warmExtraction);
+        warmImport.importDirectory(library, Set.of(), Runnable::run, IGNORE).join();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        warmExtraction.shutdown();
+        BenchmarkFiles.delete(root);
+    }
+
+    private static MetadataExtractionService extraction(Path cacheFile) {
+        MetadataService metadataService = new MetadataService(new MetadataCacheService(cacheFile),
+                new ArtworkCacheService(16L << 20, 100, null));
+        return new MetadataExtractionService(metadataService, 0, 4);
+    }
+
+    private static LibraryImportService importService(MetadataExtractionService extraction) {
+        return new LibraryImportService(extraction, 256, 5, 1000);
+    }
+
+    @Benchmark
+    public long walkOnly() throws IOException {
+        try (Stream<Path> paths = Files.walk(library)) {
+            return paths.filter(path -> path.toString().toLowerCase().endsWith(".mp3")).count();
+        }
+    }
+
+    @Benchmark
+    public LibraryImportService.ImportProgress importWarmCache() {
+        return warmImport.importDirectory(library, Set.of(), Runnable::run, IGNORE).join();
+    }
+
+    @Benchmark
+    public LibraryImportService.ImportProgress importColdCache() {
+        MetadataExtractionService extraction = extraction(root.resolve("cold-" + coldRuns++ + ".bin"));
+        try {
+            return importService(extraction).importDirectory(library, Set.of(), Runnable::run, IGNORE).join();
+        } finally {
+            extraction.shutdown();
+        }
+    }
+}
@@ -4,11 +4,29 @@ import javafx.scene.image.Image;
 import java.io.File;
 
 public interface MetadataInterface {
+    TrackInfo getTrackInfo(File file) throws Exception;
     String formatSongMetadata(File file) throws Exception;
     AudioMetadata getFileMetadata(File file) throws Exception;
     Image getAlbumArt(File file) throws Exception;
+    void invalidate(File file);
+    CacheStats getCacheStats();
+    void saveCache();
 
     record AudioMetadata(String format, String bitRate, String sampleRate,
                          String artist, String album, String title) {
     }
+
+    record TrackInfo(String format, String bitRate, String sampleRate,
+                     String artist, String album, String title,
+                     int durationSeconds, ArtworkRef artwork) {
+        public AudioMetadata toAudioMetadata() {
+            return new AudioMetadata(format, bitRate, sampleRate, artist, album, title);
+        }
+    }
+
+    record ArtworkRef(String hash, String mimeType, int length) {
+    }
+
+    record CacheStats(long hits, long misses, int entries) {
+    }
 }
\ No newline at end of file
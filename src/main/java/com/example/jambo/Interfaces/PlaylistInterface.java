@@ -1,29 +1,80 @@
 package com.example.jambo.Interfaces;
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public interface PlaylistInterface {
     void addPlaylistChangeListener(PlaylistChangeListener listener);
+    void addContentListener(PlaylistContentListener listener);
     void createPlaylist(String name);
     void deletePlaylist(String name);
     void switchToPlaylist(String name);
     Set<String> getPlaylistNames();
     String getCurrentPlaylistName();
-    void addSong(File songFile);
+    boolean addSong(File songFile);
+    boolean addSong(String playlistName, File songFile);
+    List<File> addSongs(Collection<File> songFiles);
+    List<File> addSongs(String playlistName, Collection<File> songFiles);
+    boolean containsSong(String playlistName, File songFile);
     void removeSong(int index);
+    List<File> removeSongs(int[] indices);
+    void moveSong(int from, int to);
+    boolean replaceSong(String playlistName, int index, File songFile);
+    void batch(Consumer<PlaylistBatch> changes);
+    int removeSongsIf(String playlistName, Predicate<File> filter);
     void clearPlaylist();
     void toggleShuffle();
     int getNextSongIndex(int currentIndex);
+    int peekNextSongIndex(int currentIndex);
     int getPreviousSongIndex(int currentIndex);
     File getSongFile(int index);
     List<File> getCurrentPlaylistSongs();
     List<File> getPlaylistSongs(String playlistName);
+    boolean loadPersistedPlaylists();
+    void persist();
 
     interface PlaylistChangeListener {
-        void onPlaylistChanged(String playlistName, List<File> songs);
-        void onCurrentPlaylistChanged(String newPlaylistName);
+        void onPlaylistChanged(String playlistName, List<PlaylistChangeEvent> changes);
+        void onCurrentPlaylistChanged(String newPlaylistName, List<File> songs, long version);
 
         void addSong(File songFile, String formattedInfo);
     }
+
+    sealed interface PlaylistChangeEvent {
+        String playlistName();
+        long version();
+
+        record Inserted(String playlistName, long version, int from, List<File> songs)
+                implements PlaylistChangeEvent {
+        }
+
+        // Indices are ascending and refer to positions before the removal.
+        record Removed(String playlistName, long version, int[] indices, List<File> songs)
+                implements PlaylistChangeEvent {
+        }
+
+        record Moved(String playlistName, long version, int from, int to) implements PlaylistChangeEvent {
+        }
+
+        record Replaced(String playlistName, long version, int index, File previous, File song)
+                implements PlaylistChangeEvent {
+        }
+
+        record Cleared(String playlistName, long version) implements PlaylistChangeEvent {
+        }
+    }
+
+    interface PlaylistBatch {
+        boolean add(File songFile);
+        File remove(int index);
+        boolean remove(File songFile);
+    }
+
+    interface PlaylistContentListener {
+        void onSongsAdded(String playlistName, List<File> songs);
+        void onSongsRemoved(String playlistName, List<File> songs);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.example.jambo;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import com.example.jambo.services.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indexes music folders without Spring or a JavaFX toolkit, writing the same metadata cache and
+ * playlist files the GUI reads on startup.
+ * Usage: {@code JamboHeadless [--playlist=<name>] <folder>...}
+ */
+public class JamboHeadless {
+    private static final Logger logger = LoggerFactory.getLogger(JamboHeadless.class);
+    private static final long PROGRESS_INTERVAL_NANOS = 2_000_000_000L;
+
+    public static void main(String[] args) {
+        String playlistName = "Default";
+        List<Path> roots = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--playlist=")) {
+                playlistName = arg.substring("--playlist=".length());
+            } else {
+                roots.add(Path.of(arg));
+            }
+        }
+        if (roots.isEmpty()) {
+            System.err.println("Usage: JamboHeadless [--playlist=<name>] <folder>...");
+            System.exit(2);
+        }
+        System.exit(new JamboHeadless(loadSettings()).run(playlistName, roots) ? 0 : 1);
+    }
+
+    private final Properties settings;
+
+    public JamboHeadless(Properties settings) {
+        this.settings = settings;
+    }
+
+    public boolean run(String playlistName, List<Path> roots) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        MetadataCacheService metadataCache = new MetadataCacheService();
+        String thumbnailDir = settings.getProperty("jambo.artwork.thumbnail-dir", "");
+        ArtworkCacheService artworkCache = new ArtworkCacheService(
+                longSetting("jambo.artwork.memory-budget-bytes", 16_777_216L),
+                (int) longSetting("jambo.artwork.thumbnail-size", 100),
+                thumbnailDir.isBlank() ? null : Path.of(thumbnailDir));
+        MetricsRegistry metrics = new MetricsRegistry();
+        AudioFormatRegistry formatRegistry = new AudioFormatRegistry();
+        MetadataService metadataService = new MetadataService(metadataCache, artworkCache, metrics, formatRegistry);
+        // A build box is expected to have fast storage, so the per-device limit defaults to every core.
+        MetadataExtractionService extractionService = new MetadataExtractionService(metadataService,
+                (int) longSetting("jambo.metadata.max-concurrency", 0),
+                (int) longSetting("jambo.headless.per-device-limit", cores));
+        LibraryImportService importService = new LibraryImportService(extractionService, formatRegistry,
+                (int) longSetting("jambo.import.queue-capacity", 256),
+                longSetting("jambo.import.batch-interval-ms", 50),
+                (int) longSetting("jambo.import.max-batch-size", 1000));
+        PlaylistService playlistService = new PlaylistService(
+                new PlaylistStore((int) longSetting("jambo.playlists.compaction-threshold", 1000)), metrics);
+
+        long startNanos = System.nanoTime();
+        boolean succeeded = true;
+        AtomicInteger added = new AtomicInteger();
+        int processed = 0;
+        try {
+            playlistService.loadPersistedPlaylists();
+            if (!playlistService.getPlaylistNames().contains(playlistName)) {
+                playlistService.createPlaylist(playlistName);
+            }
+            for (Path root : roots) {
+                if (!Files.isDirectory(root)) {
+                    System.err.println("Not a directory: " + root);
+                    succeeded = false;
+                    continue;
+                }
+                processed += indexRoot(importService, playlistService, playlistName, root, added);
+            }
+            metadataService.saveCache();
+        } catch (RuntimeException e) {
+            logger.error("Headless indexing failed: {}", e.getMessage(), e);
+            succeeded = false;
+        } finally {
+            extractionService.shutdown();
+            playlistService.close();
+            metrics.close();
+        }
+
+        double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 1e-3);
+        MetadataExtractionService.Stats stats = extractionService.getStats();
+        MetadataInterface.CacheStats cacheStats = metadataService.getCacheStats();
+        System.out.printf("Indexed %d files in %.1f s (%.1f files/s) on %d cores%n", processed, seconds,
+                processed / seconds, cores);
+        System.out.printf("  playlist '%s': %d added, %d total%n", playlistName, added.get(),
+                playlistService.getPlaylistSongs(playlistName).size());
+        System.out.printf("  metadata cache: %d entries, %d hits, %d misses%n", cacheStats.entries(),
+                cacheStats.hits(), cacheStats.misses());
+        System.out.printf("  extraction: %d completed, %d unreadable, avg queue %.2f ms, avg extract %.2f ms%n",
+                stats.completed(), stats.failed(), stats.averageQueueMillis(), stats.averageExtractMillis());
+        return succeeded;
+    }
+
+    private static int indexRoot(LibraryImportService importService, PlaylistService playlistService,
+                                 String playlistName, Path root, AtomicInteger added) {
+        AtomicLong lastReport = new AtomicLong(System.nanoTime());
+        LibraryImportService.ImportProgress result = importService.importDirectory(root, Set.of(), Runnable::run,
+                new LibraryImportService.ImportListener() {
+                    @Override
+                    public void onBatch(List<LibraryImportService.ImportedTrack> batch) {
+                        List<File> files = batch.stream().map(LibraryImportService.ImportedTrack::file).toList();
+                        added.addAndGet(playlistService.addSongs(playlistName, files).size());
+                    }
+
+                    @Override
+                    public void onProgress(LibraryImportService.ImportProgress progress) {
+                        long now = System.nanoTime();
+                        long last = lastReport.get();
+                        if (progress.done() || now - last < PROGRESS_INTERVAL_NANOS
+                                || !lastReport.compareAndSet(last, now)) {
+                            return;
+                        }
+                        System.out.printf("  %s: %d/%d files (%.1f files/s)%n", root, progress.processed(),
+                                progress.discovered(), progress.filesPerSecond());
+                    }
+                }).join();
+        System.out.printf("%s: %d files, %d skipped as not playable (%.1f files/s)%n", root, result.processed(),
+                result.skipped(), result.filesPerSecond());
+        return result.processed();
+    }
+
+    private long longSetting(String key, long defaultValue) {
+        String value = System.getProperty(key, settings.getProperty(key));
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring invalid value '{}' for {}", value, key);
+            return defaultValue;
+        }
+    }
+
+    private static Properties loadSettings() {
+        Properties properties = new Properties();
+        try (InputStream in = JamboHeadless.class.getResourceAsStream("/application.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to read application.properties: {}", e.getMessage());
+        }
+        return properties;
+    }
+}
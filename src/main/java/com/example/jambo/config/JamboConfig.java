@@ -5,6 +5,8 @@ import com.example.jambo.event.MediaEventHandler;
 import com.example.jambo.services.*;
 import com.example.jambo.managers.*;
 import com.example.jambo.ui.JamboUI;
+import com.example.jambo.ui.WaveformSeekBar;
+import javafx.application.Platform;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import javafx.scene.control.Slider;
@@ -12,11 +14,17 @@ import javafx.scene.layout.Pane;
 import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Primary;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Locale;
+
 @Configuration
 @ComponentScan(basePackages = "com.example.jambo")
 public class JamboConfig {
@@ -42,11 +50,27 @@ public class JamboConfig {
         return new VolumeController(volumeSlider);
     }
 
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public MetricsRegistry metricsRegistry(@Value("${jambo.metrics.log-interval-seconds:60}") long logIntervalSeconds) {
+        return new MetricsRegistry(logIntervalSeconds);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @Lazy(false)
+    public FxStallDetector fxStallDetector(
+            MetricsRegistry metricsRegistry,
+            @Value("${jambo.fx.heartbeat-ms:50}") long heartbeatMillis,
+            @Value("${jambo.fx.stall-budget-ms:100}") long budgetMillis,
+            @Value("${jambo.fx.stall-history:64}") int historySize) {
+        return new FxStallDetector(Platform::runLater, heartbeatMillis, budgetMillis, historySize, metricsRegistry);
+    }
+
     @Bean
     public MusicPlayerService musicPlayerService(
             VolumeController volumeController,
-            MediaEventHandler mediaEventHandler) {
-        return new MusicPlayerService(volumeController, mediaEventHandler) {
+            MediaEventHandler mediaEventHandler,
+            MetricsRegistry metricsRegistry) {
+        return new MusicPlayerService(volumeController, mediaEventHandler, metricsRegistry) {
             @Override
             protected MediaPlayer createMediaPlayer(Media media) {
                 if (media == null) {
@@ -63,19 +87,113 @@ public class JamboConfig {
     }
 
 
+    @Bean(destroyMethod = "close")
+    public PlaylistService playlistService(PlaylistStore playlistStore, MetricsRegistry metricsRegistry) {
+        return new PlaylistService(playlistStore, metricsRegistry);
+    }
+
+    @Bean
+    public PlaylistStore playlistStore(@Value("${jambo.playlists.compaction-threshold:1000}") int compactionThreshold) {
+        return new PlaylistStore(compactionThreshold);
+    }
+
+    @Bean
+    public MetadataCacheService metadataCacheService() {
+        return new MetadataCacheService();
+    }
+
+    @Bean
+    public ArtworkCacheService artworkCacheService(
+            @Value("${jambo.artwork.memory-budget-bytes:16777216}") long memoryBudgetBytes,
+            @Value("${jambo.artwork.thumbnail-size:100}") int thumbnailSize,
+            @Value("${jambo.artwork.thumbnail-dir:}") String thumbnailDir) {
+        return new ArtworkCacheService(memoryBudgetBytes, thumbnailSize,
+                thumbnailDir.isBlank() ? null : Path.of(thumbnailDir));
+    }
+
+    @Bean
+    public AudioFormatRegistry audioFormatRegistry() {
+        return new AudioFormatRegistry();
+    }
+
+    @Bean
+    public MetadataService metadataService(MetadataCacheService metadataCacheService,
+                                           ArtworkCacheService artworkCacheService,
+                                           MetricsRegistry metricsRegistry,
+                                           AudioFormatRegistry audioFormatRegistry) {
+        return new MetadataService(metadataCacheService, artworkCacheService, metricsRegistry, audioFormatRegistry);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public MetadataExtractionService metadataExtractionService(
+            MetadataService metadataService,
+            @Value("${jambo.metadata.max-concurrency:0}") int maxConcurrency,
+            @Value("${jambo.metadata.per-device-limit:4}") int perDeviceLimit) {
+        return new MetadataExtractionService(metadataService, maxConcurrency, perDeviceLimit);
+    }
+
     @Bean
-    public PlaylistService playlistService() {
-        return new PlaylistService();
+    public LibraryImportService libraryImportService(
+            MetadataExtractionService metadataExtractionService,
+            AudioFormatRegistry audioFormatRegistry,
+            @Value("${jambo.import.queue-capacity:256}") int queueCapacity,
+            @Value("${jambo.import.batch-interval-ms:50}") long batchIntervalMillis,
+            @Value("${jambo.import.max-batch-size:1000}") int maxBatchSize) {
+        return new LibraryImportService(metadataExtractionService, audioFormatRegistry, queueCapacity,
+                batchIntervalMillis, maxBatchSize);
+    }
+
+    @Bean(destroyMethod = "save")
+    public DuplicateDetectionService duplicateDetectionService(MetadataExtractionService metadataExtractionService,
+                                                               AudioFormatRegistry audioFormatRegistry) {
+        return new DuplicateDetectionService(metadataExtractionService, audioFormatRegistry);
     }
 
     @Bean
-    public MetadataService metadataService() {
-        return new MetadataService();
+    public Mp3Decoder mp3Decoder(AudioFormatRegistry audioFormatRegistry) {
+        return new Mp3Decoder(audioFormatRegistry);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public LoudnessAnalysisService loudnessAnalysisService(
+            PlaylistService playlistService,
+            Mp3Decoder mp3Decoder,
+            MetricsRegistry metricsRegistry,
+            @Value("${jambo.loudness.mode:album}") String mode,
+            @Value("${jambo.loudness.preamp-db:0}") double preampDb,
+            @Value("${jambo.loudness.threads:0}") int threads) {
+        LoudnessAnalysisService loudnessAnalysisService = new LoudnessAnalysisService(mp3Decoder,
+                LoudnessAnalysisService.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)), preampDb, threads,
+                metricsRegistry);
+        playlistService.addContentListener(loudnessAnalysisService);
+        return loudnessAnalysisService;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public WaveformService waveformService(
+            Mp3Decoder mp3Decoder,
+            MetricsRegistry metricsRegistry,
+            @Value("${jambo.waveform.buckets:1024}") int buckets,
+            @Value("${jambo.waveform.cache-dir:waveform_cache}") String cacheDir) {
+        return new WaveformService(mp3Decoder, buckets, Path.of(cacheDir), metricsRegistry);
     }
 
     @Bean
-    public IconService iconService() {
-        return new IconService();
+    public WaveformSeekBar waveformSeekBar(@Qualifier("progressSlider") Slider progressSlider) {
+        return new WaveformSeekBar(progressSlider);
+    }
+
+    @Bean(destroyMethod = "close")
+    public LibraryWatchService libraryWatchService(
+            AudioFormatRegistry audioFormatRegistry,
+            @Value("${jambo.library.quiet-period-ms:750}") long quietPeriodMillis) {
+        return new LibraryWatchService(Path.of(LibraryWatchService.DEFAULT_ROOTS_FILE), quietPeriodMillis,
+                audioFormatRegistry);
+    }
+
+    @Bean
+    public IconService iconService(@Value("${jambo.startup.fast:true}") boolean fastStartup) {
+        return new IconService(fastStartup);
     }
 
     @Bean
@@ -116,36 +234,52 @@ public class JamboConfig {
     public MusicPlayerManager musicPlayerManager(
             MusicPlayerService musicPlayerService,
             VolumeController volumeController,
+            LoudnessAnalysisService loudnessAnalysisService,
             @Qualifier("currentSongLabel") Label currentSongLabel,
             @Qualifier("timerLabel") Label timerLabel,
-            @Qualifier("progressSlider") Slider progressSlider) {
-        return new MusicPlayerManager(musicPlayerService, volumeController, currentSongLabel, timerLabel, progressSlider);
+            @Qualifier("progressSlider") Slider progressSlider,
+            WaveformService waveformService,
+            WaveformSeekBar waveformSeekBar,
+            @Value("${jambo.playback.prefetch-next:true}") boolean prefetchNext,
+            @Value("${jambo.playback.progress-sample-hz:10}") int progressSampleRate) {
+        return new MusicPlayerManager(musicPlayerService, volumeController, loudnessAnalysisService, currentSongLabel,
+                timerLabel, progressSlider, waveformService, waveformSeekBar, prefetchNext, progressSampleRate);
     }
 
     @Bean
     public PlaylistManager playlistManager(
             PlaylistService playlistService,
-            ListView<String> playlistView) {
-        return new PlaylistManager(playlistService, playlistView);
+            MetadataExtractionService metadataExtractionService,
+            SearchIndexService searchIndexService,
+            ListView<File> playlistView) {
+        return new PlaylistManager(playlistService, metadataExtractionService, searchIndexService, playlistView);
+    }
+
+    @Bean
+    public SearchIndexService searchIndexService(PlaylistService playlistService,
+                                                 MetadataExtractionService metadataExtractionService) {
+        SearchIndexService searchIndexService = new SearchIndexService(metadataExtractionService);
+        playlistService.addContentListener(searchIndexService);
+        return searchIndexService;
     }
 
     @Bean
     public JamboUI jamboUI(
             IconService iconService,
             DialogService dialogService,
-            @Qualifier("progressSlider") Slider progressSlider,
+            WaveformSeekBar waveformSeekBar,
             @Qualifier("volumeSlider") Slider volumeSlider,
             @Qualifier("currentSongLabel") Label currentSongLabel,
             @Qualifier("timerLabel") Label timerLabel,
             @Qualifier("fileInfoLabel") Label fileInfoLabel,
             Pane albumArtPane,
-            ListView<String> playlistView) {
-        return new JamboUI(iconService, dialogService, progressSlider, volumeSlider,
+            ListView<File> playlistView) {
+        return new JamboUI(iconService, dialogService, waveformSeekBar, volumeSlider,
                 currentSongLabel, timerLabel, fileInfoLabel, albumArtPane, playlistView);
     }
 
     @Bean
-    public ListView<String> playlistView() {
+    public ListView<File> playlistView() {
         return new ListView<>();
     }
 }
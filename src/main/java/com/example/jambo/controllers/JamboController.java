@@ -3,26 +3,31 @@ package com.example.jambo.controllers;
 import com.example.jambo.managers.MusicPlayerManager;
 import com.example.jambo.managers.PlaylistManager;
 import com.example.jambo.managers.MetadataManager;
+import com.example.jambo.services.DuplicateDetectionService;
+import com.example.jambo.services.LibraryImportService;
+import com.example.jambo.services.LibraryWatchService;
+import com.example.jambo.services.MetadataExtractionService;
+import com.example.jambo.services.MetricsRegistry;
+import com.example.jambo.services.StartupTimeline;
 import com.example.jambo.ui.JamboUI;
 import javafx.application.Platform;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.scene.media.Media;
+import javafx.scene.Scene;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.nio.file.*;
 import java.util.stream.Stream;
 
 import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 
 @Controller
@@ -33,6 +38,17 @@ public class JamboController {
     private final PlaylistManager playlistManager;
     private final MetadataManager metadataManager;
     private final JamboUI ui;
+    private final LibraryImportService libraryImportService;
+    private final LibraryWatchService libraryWatchService;
+    private final MetadataExtractionService extractionService;
+    private final DuplicateDetectionService duplicateDetectionService;
+    private final MetricsRegistry.Timer fxQueueDelay;
+    private final MetricsRegistry.Counter filesScanned;
+    private final MetricsRegistry.Histogram importBatchSize;
+    private final MetricsRegistry metrics;
+    private final boolean fastStartup;
+    private CompletableFuture<Void> restored = CompletableFuture.completedFuture(null);
+    private volatile boolean restoreFailed = false;
     private boolean isDragging = false;
     private Stage primaryStage;
 
@@ -40,11 +56,26 @@ public class JamboController {
     public JamboController(MusicPlayerManager musicPlayerManager,
                            PlaylistManager playlistManager,
                            MetadataManager metadataManager,
-                           JamboUI ui) {
+                           JamboUI ui,
+                           LibraryImportService libraryImportService,
+                           LibraryWatchService libraryWatchService,
+                           MetadataExtractionService extractionService,
+                           DuplicateDetectionService duplicateDetectionService,
+                           MetricsRegistry metrics,
+                           @Value("${jambo.startup.fast:true}") boolean fastStartup) {
         this.musicPlayerManager = musicPlayerManager;
         this.playlistManager = playlistManager;
         this.metadataManager = metadataManager;
         this.ui = ui;
+        this.libraryImportService = libraryImportService;
+        this.libraryWatchService = libraryWatchService;
+        this.extractionService = extractionService;
+        this.duplicateDetectionService = duplicateDetectionService;
+        this.fxQueueDelay = metrics.timer("fx.runlater.delay");
+        this.filesScanned = metrics.counter("library.files.scanned");
+        this.importBatchSize = metrics.histogram("library.import.batch-size");
+        this.metrics = metrics;
+        this.fastStartup = fastStartup;
         setupEventHandlers();
         logger.info("JamboController initialized successfully.");
     }
@@ -65,19 +96,76 @@ public class JamboController {
         });
     }
 
-    public void initializeStage(Stage primaryStage) {
+    public void initializeStage(Stage primaryStage, StartupTimeline startup) {
         this.primaryStage = primaryStage;
         configurePrimaryStage();
-        loadSavedSongs();
         ui.initializeContextMenu(this);
+        ui.getSearchField().textProperty().addListener((observable, oldQuery, query) -> playlistManager.filterSongs(query));
+        startup.mark("stage");
+
+        if (fastStartup) {
+            // Show the empty window first and restore the library from disk while it is on screen.
+            afterFirstFrame(() -> {
+                startup.mark("first-frame");
+                restored = restoreInBackground(this::loadSavedSongs, runnable -> {
+                    Thread thread = new Thread(runnable, "jambo-restore");
+                    thread.setDaemon(true);
+                    thread.start();
+                }, Platform::runLater, error -> {
+                    // A partial restore must never be written over the saved playlists.
+                    restoreFailed = true;
+                    logger.error("Failed to restore playlists, changes will not be saved this session", error);
+                }, () -> onLibraryRestored(startup));
+            });
+        } else {
+            loadSavedSongs();
+            afterFirstFrame(() -> {
+                startup.mark("first-frame");
+                onLibraryRestored(startup);
+            });
+        }
+    }
+
+    // Completes normally even when the restore fails, so actions chained on it still run.
+    static CompletableFuture<Void> restoreInBackground(Runnable restore, Executor restoreExecutor, Executor fxExecutor,
+                                                       Consumer<Throwable> onFailure, Runnable onRestored) {
+        return CompletableFuture.runAsync(restore, restoreExecutor).handleAsync((ignored, error) -> {
+            if (error != null) {
+                onFailure.accept(error);
+            }
+            onRestored.run();
+            return null;
+        }, fxExecutor);
+    }
+
+    private void afterFirstFrame(Runnable action) {
+        Scene scene = primaryStage.getScene();
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                Platform.runLater(action);
+            }
+        });
+    }
+
+    private void onLibraryRestored(StartupTimeline startup) {
+        startup.mark("library");
+        libraryWatchService.start(this::onLibraryChanged);
+        startup.finish(metrics);
+        if (Boolean.getBoolean("jambo.startup.exit-after-interactive")) {
+            Platform.exit();
+        }
     }
 
     private void configurePrimaryStage() {
         primaryStage.setTitle("Jambo - 0.3 - Default");
-        primaryStage.setScene(ui.createScene(this));
+        Scene scene = ui.createScene(this);
+        scene.getStylesheets().add(Objects.requireNonNull(getClass().getResource("/styles/style.css")).toExternalForm());
+        primaryStage.setScene(scene);
         primaryStage.setMinWidth(1000);
         primaryStage.setMinHeight(800);
-        primaryStage.setOnCloseRequest(event -> saveSongsToJson());
+        primaryStage.setOnCloseRequest(event -> savePlaylists());
         primaryStage.show();
         logger.info("Primary stage configured and displayed.");
     }
@@ -92,16 +180,16 @@ public class JamboController {
 
     public void playSelectedSong() {
         try {
-            int selectedIndex = ui.getSongListView().getSelectionModel().getSelectedIndex();
+            int selectedIndex = playlistManager.getSelectedSongIndex();
             if (selectedIndex >= 0) {
                 File songFile = playlistManager.getSongFile(selectedIndex);
                 if (songFile != null && songFile.exists()) {
-                    Media media = new Media(songFile.toURI().toString());
-                    musicPlayerManager.playMedia(media);
+                    musicPlayerManager.playFile(songFile);
                     logger.info("Playing selected song: {}", songFile.getName());
 
                     musicPlayerManager.setOnEndOfMedia(this::playNextSong);
                     metadataManager.updateFileInfo(songFile);
+                    prefetchNextSong();
                 } else {
                     logger.warn("Selected song file does not exist: {}", songFile);
                 }
@@ -112,78 +200,138 @@ public class JamboController {
     }
 
     public void loadSongs() {
+        // Importing before the restore finishes would compute duplicates against an empty playlist.
+        restored.thenRun(this::chooseAndImport);
+    }
+
+    private void chooseAndImport() {
         DirectoryChooser directoryChooser = new DirectoryChooser();
         directoryChooser.setTitle("Select Music Directory");
 
         File selectedDirectory = directoryChooser.showDialog(null);
 
         if (selectedDirectory != null) {
-            CompletableFuture.supplyAsync(() -> {
-                try {
-                    Set<String> existingPaths = playlistManager.getSongFiles().stream()
-                            .map(File::getAbsolutePath)
-                            .collect(Collectors.toSet());
-
-                    try (Stream<Path> paths = Files.walk(selectedDirectory.toPath()).parallel()) {
-                        return paths
-                                .filter(path -> path.toString().toLowerCase().endsWith(".mp3"))
-                                .map(Path::toFile)
-                                .filter(file -> !existingPaths.contains(file.getAbsolutePath()))
-                                .sorted(Comparator.comparing(File::getAbsolutePath))
-                                .collect(Collectors.toList());
-                    }
-                } catch (IOException e) {
-                    logger.error("Error scanning directory: {}", selectedDirectory, e);
-                    return Collections.emptyList();
-                }
-            }).thenAccept(files -> Platform.runLater(() -> {
-                for (Object file : files) {
-                    addFileToPlaylist((File) file);
-                }
-                playlistManager.onPlaylistChanged(playlistManager.getCurrentPlaylistName(),
-                        playlistManager.getSongFiles());
-                saveSongsToJson();
-            }));
+            Set<String> existingPaths = playlistManager.getSongFiles().stream()
+                    .map(File::getAbsolutePath)
+                    .collect(Collectors.toSet());
+            String targetPlaylist = playlistManager.getCurrentPlaylistName();
+
+            libraryImportService.importDirectory(selectedDirectory.toPath(), existingPaths, this::runOnFxThread,
+                    new LibraryImportService.ImportListener() {
+                        @Override
+                        public void onBatch(List<LibraryImportService.ImportedTrack> batch) {
+                            filesScanned.add(batch.size());
+                            importBatchSize.record(batch.size());
+                            playlistManager.addSongs(targetPlaylist, batch);
+                        }
+
+                        @Override
+                        public void onProgress(LibraryImportService.ImportProgress progress) {
+                            showImportProgress(progress);
+                            if (progress.done()) {
+                                libraryWatchService.addRoot(selectedDirectory.toPath(), targetPlaylist);
+                            }
+                        }
+                    });
         }
     }
 
-    private void addFileToPlaylist(File file) {
-        String formattedInfo;
-        try {
-            formattedInfo = metadataManager.formatSongMetadata(file);
-        } catch (Exception e) {
-            formattedInfo = file.getName();
+    private void onLibraryChanged(LibraryWatchService.LibraryChange change) {
+        if (!playlistManager.getPlaylistNames().contains(change.playlistName())) {
+            libraryWatchService.removeRootsForPlaylist(change.playlistName());
+            return;
         }
-        playlistManager.addSong(file, formattedInfo);
-
-        updateSongListView();
+        change.modified().forEach(metadataManager::invalidate);
+        change.deleted().forEach(metadataManager::invalidate);
+
+        Map<File, CompletableFuture<String>> created = submitFormats(change.created());
+        Map<File, CompletableFuture<String>> modified = submitFormats(change.modified());
+        CompletableFuture<?>[] pending = Stream.concat(created.values().stream(), modified.values().stream())
+                .toArray(CompletableFuture<?>[]::new);
+
+        CompletableFuture.allOf(pending).whenComplete((ignored, error) -> {
+            List<LibraryImportService.ImportedTrack> createdTracks = new ArrayList<>(created.size());
+            created.forEach((file, info) ->
+                    createdTracks.add(new LibraryImportService.ImportedTrack(file, infoOrFileName(file, info))));
+            Map<File, String> modifiedInfo = new HashMap<>();
+            modified.forEach((file, info) -> modifiedInfo.put(file, infoOrFileName(file, info)));
+            runOnFxThread(() -> {
+                playlistManager.applyLibraryChange(change, createdTracks, modifiedInfo);
+                savePlaylists();
+            });
+        });
     }
 
-    private void updateSongListView() {
-        List<String> songTitles = playlistManager.getSongFiles().stream()
-                .map(file -> {
-                    try {
-                        return metadataManager.formatSongMetadata(file);
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
-                })
-                .collect(Collectors.toList());
+    private Map<File, CompletableFuture<String>> submitFormats(List<File> files) {
+        Map<File, CompletableFuture<String>> formatted = new LinkedHashMap<>();
+        files.forEach(file -> formatted.put(file,
+                extractionService.submitFormat(file, MetadataExtractionService.Priority.BACKGROUND)));
+        return formatted;
+    }
 
-        ObservableList<String> observableSongs = FXCollections.observableArrayList(songTitles);
-        Platform.runLater(() -> ui.getSongListView().setItems(observableSongs));
+    private void runOnFxThread(Runnable task) {
+        long queuedNanos = System.nanoTime();
+        Platform.runLater(() -> {
+            fxQueueDelay.record(System.nanoTime() - queuedNanos);
+            task.run();
+        });
     }
 
+    private static String infoOrFileName(File file, CompletableFuture<String> info) {
+        return info.isCompletedExceptionally() ? file.getName() : info.join();
+    }
 
+    private void showImportProgress(LibraryImportService.ImportProgress progress) {
+        if (primaryStage == null) {
+            return;
+        }
+        if (progress.done()) {
+            updateTitleWithPlaylistName(playlistManager.getCurrentPlaylistName());
+            savePlaylists();
+        } else {
+            primaryStage.setTitle(String.format("Jambo - 0.3 - %s (importing %d/%d, %.0f files/s)",
+                    playlistManager.getCurrentPlaylistName(), progress.processed(), progress.discovered(),
+                    progress.filesPerSecond()));
+        }
+    }
 
     private void loadSavedSongs() {
-        playlistManager.loadSongsFromJson("saved_songs.json");
-        logger.info("Songs in playlist: {}", playlistManager.getSongFiles());
-        updateSongListView();
+        playlistManager.loadPlaylists("saved_songs.json");
+        logger.info("Songs in playlist: {}", playlistManager.getSongFiles().size());
     }
 
-    private void saveSongsToJson() {
-        playlistManager.saveSongsToJson("saved_songs.json");
+    private void savePlaylists() {
+        if (!restored.isDone()) {
+            return;
+        }
+        if (!restoreFailed) {
+            playlistManager.savePlaylists();
+        }
+        metadataManager.saveCache();
+    }
+
+    /**
+     * @param confirm asked on the FX thread with the groups found; nothing is removed unless it agrees
+     */
+    public void collapseDuplicates(Predicate<List<DuplicateDetectionService.DuplicateGroup>> confirm) {
+        restored.thenRun(() -> {
+            if (primaryStage != null) {
+                primaryStage.setTitle("Jambo - 0.3 - " + playlistManager.getCurrentPlaylistName()
+                        + " (finding duplicates)");
+            }
+            duplicateDetectionService.findDuplicates(playlistManager.getAllPlaylists())
+                    .thenAccept(groups -> runOnFxThread(() -> {
+                        updateTitleWithPlaylistName(playlistManager.getCurrentPlaylistName());
+                        if (groups.isEmpty() || !confirm.test(groups)) {
+                            logger.info("Found {} duplicate groups, nothing collapsed", groups.size());
+                            return;
+                        }
+                        int removed = playlistManager.collapseDuplicates(groups);
+                        logger.info("Collapsed {} duplicate groups, removed {} redundant copies", groups.size(),
+                                removed);
+                        savePlaylists();
+                    }));
+        });
     }
 
     public void clearSongs() {
@@ -205,7 +353,7 @@ public class JamboController {
     public void playNextSong() {
         int nextIndex = playlistManager.getNextSongIndex();
         if (nextIndex >= 0) {
-            ui.getSongListView().getSelectionModel().select(nextIndex);
+            selectSong(nextIndex);
             playSelectedSong();
         }
     }
@@ -213,11 +361,25 @@ public class JamboController {
     public void playPreviousSong() {
         int previousIndex = playlistManager.getPreviousSongIndex();
         if (previousIndex >= 0) {
-            ui.getSongListView().getSelectionModel().select(previousIndex);
+            selectSong(previousIndex);
             playSelectedSong();
         }
     }
 
+    private void prefetchNextSong() {
+        int nextIndex = playlistManager.peekNextSongIndex();
+        if (nextIndex >= 0) {
+            musicPlayerManager.prefetch(playlistManager.getSongFile(nextIndex));
+        }
+    }
+
+    private void selectSong(int index) {
+        if (!playlistManager.selectSong(index)) {
+            ui.getSearchField().clear();
+            playlistManager.selectSong(index);
+        }
+    }
+
     public void toggleShuffle() {
         playlistManager.toggleShuffle();
     }
@@ -230,6 +392,10 @@ public class JamboController {
         musicPlayerManager.toggleMute();
     }
 
+    public void removeSelectedSong() {
+        removeSong(playlistManager.getSelectedSongIndex());
+    }
+
     public void removeSong(int index) {
         if (index >= 0) {
             playlistManager.removeSong(index);
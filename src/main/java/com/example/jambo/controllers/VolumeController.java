@@ -10,6 +10,7 @@ import java.util.List;
 public class VolumeController {
     private double volume = 0.5;
     private boolean isMuted = false;
+    private double gainFactor = 1.0;
     private final List<VolumeChangeListener> listeners = new ArrayList<>();
     private MediaPlayer boundMediaPlayer;
     private final Slider volumeSlider;
@@ -20,17 +21,24 @@ public class VolumeController {
 
     public void bindToMediaPlayer(MediaPlayer mediaPlayer) {
         this.boundMediaPlayer = mediaPlayer;
-        if (mediaPlayer != null) {
-            mediaPlayer.setVolume(isMuted ? 0.0 : volume);
+        applyVolume();
+    }
 
-            addVolumeChangeListener((newVolume, muted) -> {
-                if (boundMediaPlayer != null) {
-                    boundMediaPlayer.setVolume(muted ? 0.0 : newVolume);
-                }
-            });
+    private void applyVolume() {
+        if (boundMediaPlayer != null) {
+            boundMediaPlayer.setVolume(isMuted ? 0.0 : volume * gainFactor);
         }
     }
 
+    /**
+     * Scales playback volume by a loudness correction. MediaPlayer volume cannot exceed 1.0, so
+     * positive gains are clamped to 0 dB and the correction can only attenuate.
+     */
+    public void setGainDb(double gainDb) {
+        gainFactor = Math.min(1.0, Math.pow(10, gainDb / 20));
+        applyVolume();
+    }
+
     public void addVolumeChangeListener(VolumeChangeListener listener) {
         if (listener != null) {
             listeners.add(listener);
@@ -49,8 +57,15 @@ public class VolumeController {
         return isMuted;
     }
 
+    public int getListenerCount() {
+        return listeners.size();
+    }
+
     public VolumeController(Slider volumeSlider) {
         this.volumeSlider = volumeSlider;
+        if (volumeSlider == null) {
+            return;
+        }
 
         volumeSlider.setValue(volume);
 
@@ -61,6 +76,7 @@ public class VolumeController {
     }
 
     private void notifyListeners() {
+        applyVolume();
         for (VolumeChangeListener listener : listeners) {
             listener.onVolumeChanged(volume, isMuted);
         }
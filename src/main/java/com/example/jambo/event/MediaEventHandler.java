@@ -14,7 +14,6 @@ public class MediaEventHandler {
     public void initializeEventHandlers(MediaPlayer player) {
         setupErrorHandler(player);
         setupEndOfMediaHandler(player);
-        setupTimeUpdateHandler(player);
     }
 
     private void setupErrorHandler(MediaPlayer player) {
@@ -24,11 +23,6 @@ public class MediaEventHandler {
         });
     }
 
-    private void setupTimeUpdateHandler(MediaPlayer player) {
-        player.currentTimeProperty().addListener((observable, oldValue, newValue) -> {
-        });
-    }
-
     private void setupEndOfMediaHandler(MediaPlayer player) {
         player.setOnEndOfMedia(() -> {
             player.seek(Duration.ZERO);
@@ -41,15 +41,29 @@ public class MetadataManager {
         return metadataService.formatSongMetadata(file);
     }
 
+    public void invalidate(File file) {
+        metadataService.invalidate(file);
+    }
+
+    public void saveCache() {
+        MetadataInterface.CacheStats stats = metadataService.getCacheStats();
+        logger.info("Metadata cache: {} entries, {} hits, {} misses", stats.entries(), stats.hits(), stats.misses());
+        metadataService.saveCache();
+    }
+
     public void updateFileInfo(File songFile) {
         try {
-            MetadataInterface.AudioMetadata metadata = metadataService.getFileMetadata(songFile);
+            MetadataInterface.TrackInfo info = metadataService.getTrackInfo(songFile);
             fileInfoLabel.setText(String.format("%s, %s kbps, %s Hz",
-                    metadata.format(), metadata.bitRate(), metadata.sampleRate()));
+                    info.format(), info.bitRate(), info.sampleRate()));
             currentSongLabel.setText(String.format("Playing: %s - %s - %s",
-                    metadata.artist(), metadata.album(), metadata.title()));
+                    info.artist(), info.album(), info.title()));
 
-            updateAlbumArt(songFile);
+            if (info.artwork() != null) {
+                updateAlbumArt(songFile);
+            } else {
+                clearAlbumArt();
+            }
         } catch (Exception e) {
             fileInfoLabel.setText("Error retrieving metadata");
             logger.error("Error reading metadata for file {}: {}", songFile.getName(), e.getMessage(), e);
@@ -1,24 +1,54 @@
 package com.example.jambo.managers;
 
 import com.example.jambo.controllers.VolumeController;
+import com.example.jambo.services.LoudnessAnalysisService;
 import com.example.jambo.services.MusicPlayerService;
+import com.example.jambo.services.WaveformService;
+import com.example.jambo.ui.WaveformSeekBar;
 import com.example.jambo.utils.TimeFormatter;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
 import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
 import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Component
 public class MusicPlayerManager {
     private static final Logger logger = LoggerFactory.getLogger(MusicPlayerManager.class);
+    private static final double PROGRESS_RESOLUTION = 0.001;
     private final MusicPlayerService musicPlayerService;
     private final VolumeController volumeController;
+    private final LoudnessAnalysisService loudnessService;
     private final Label currentSongLabel;
     private final Label timerLabel;
     private final Slider progressSlider;
+    private final WaveformService waveformService;
+    private final WaveformSeekBar seekBar;
+    private final boolean prefetchNext;
+    private final double progressSampleMillis;
+    private final StringBuilder timerText = new StringBuilder(16);
+    private Animation progressTimeline;
+    private double shownProgress = -1;
+    private int shownCurrentSecond = -1;
+    private int shownTotalSecond = -1;
+    private File waveformFile;
+    private final ExecutorService mediaLoader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jambo-media-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private boolean isPlaying = false;
     // Removed unused isLooping field since the state is managed by MusicPlayerService
@@ -26,14 +56,70 @@ public class MusicPlayerManager {
     public MusicPlayerManager(
             MusicPlayerService musicPlayerService,
             VolumeController volumeController,
+            LoudnessAnalysisService loudnessService,
             Label currentSongLabel,
             Label timerLabel,
-            Slider progressSlider) {
+            Slider progressSlider,
+            WaveformService waveformService,
+            WaveformSeekBar seekBar,
+            boolean prefetchNext,
+            int progressSampleRate) {
         this.musicPlayerService = musicPlayerService;
         this.volumeController = volumeController;
+        this.loudnessService = loudnessService;
         this.currentSongLabel = currentSongLabel;
         this.timerLabel = timerLabel;
         this.progressSlider = progressSlider;
+        this.waveformService = waveformService;
+        this.seekBar = seekBar;
+        this.prefetchNext = prefetchNext;
+        this.progressSampleMillis = 1000.0 / Math.max(1, progressSampleRate);
+    }
+
+    public void playFile(File songFile) {
+        String source = songFile.toURI().toString();
+        volumeController.setGainDb(loudnessService.getGainDb(songFile));
+        showWaveform(songFile);
+        if (prefetchNext && musicPlayerService.playPrepared(source)) {
+            isPlaying = true;
+            setupTimeUpdates();
+            logger.info("Started playing prefetched media");
+        } else {
+            playMedia(new Media(source));
+        }
+    }
+
+    public void prefetch(File songFile) {
+        waveformService.prefetch(songFile);
+        if (!prefetchNext || songFile == null) {
+            return;
+        }
+        String source = songFile.toURI().toString();
+        CompletableFuture.supplyAsync(() -> new Media(source), mediaLoader)
+                .thenAcceptAsync(musicPlayerService::prepareNext, Platform::runLater)
+                .exceptionally(e -> {
+                    logger.warn("Failed to prefetch {}: {}", songFile.getName(), e.getMessage());
+                    return null;
+                });
+    }
+
+    // Peaks computed ahead of time are shown right away; otherwise they appear once decoded.
+    private void showWaveform(File songFile) {
+        waveformFile = songFile;
+        CompletableFuture<WaveformService.Peaks> peaks = waveformService.getPeaks(songFile);
+        if (peaks.isDone() && !peaks.isCompletedExceptionally()) {
+            seekBar.setPeaks(peaks.join());
+            return;
+        }
+        seekBar.setPeaks(null);
+        peaks.thenAcceptAsync(loaded -> {
+            if (songFile.equals(waveformFile)) {
+                seekBar.setPeaks(loaded);
+            }
+        }, Platform::runLater).exceptionally(e -> {
+            logger.warn("Failed to load waveform of {}: {}", songFile.getName(), e.getMessage());
+            return null;
+        });
     }
 
     public void playMedia(Media media) {
@@ -56,8 +142,12 @@ public class MusicPlayerManager {
 
     public void stopMusic() {
         musicPlayerService.stopMedia();
+        musicPlayerService.discardPrepared();
+        resetProgress();
         isPlaying = false;
         currentSongLabel.setText("No song playing");
+        waveformFile = null;
+        seekBar.setPeaks(null);
         progressSlider.setValue(0);
         timerLabel.setText("0:00 / 0:00");
         logger.info("Stopped music playback");
@@ -78,26 +168,71 @@ public class MusicPlayerManager {
     }
 
     private void setupTimeUpdates() {
-        if (musicPlayerService.getMediaPlayer() != null) {
-            musicPlayerService.getMediaPlayer().currentTimeProperty().addListener((observable, oldValue, newValue) -> {
-                if (!progressSlider.isPressed()) {
-                    Duration current = musicPlayerService.getMediaPlayer().getCurrentTime();
-                    Duration total = getTotalDuration();
-
-                    if (total != null) {
-                        double progress = current.toSeconds() / total.toSeconds();
-                        progressSlider.setValue(progress);
-                        updateTimerLabel(current, total);
-                    }
-                }
-            });
+        shownProgress = -1;
+        shownCurrentSecond = -1;
+        shownTotalSecond = -1;
+        if (progressTimeline == null) {
+            progressTimeline = createProgressTimeline(Duration.millis(progressSampleMillis), this::sampleProgress);
         }
+        if (progressTimeline.getStatus() != Animation.Status.RUNNING) {
+            progressTimeline.play();
+        }
+    }
+
+    protected Animation createProgressTimeline(Duration interval, Runnable sample) {
+        Timeline timeline = new Timeline(new KeyFrame(interval, event -> sample.run()));
+        timeline.setCycleCount(Animation.INDEFINITE);
+        return timeline;
+    }
+
+    private void sampleProgress() {
+        MediaPlayer player = musicPlayerService.getMediaPlayer();
+        if (player == null || progressSlider.isPressed()) {
+            return;
+        }
+        double current = player.getCurrentTime().toSeconds();
+        double total = player.getTotalDuration().toSeconds();
+        if (!(total > 0)) {
+            return;
+        }
+
+        double progress = current / total;
+        if (Math.abs(progress - shownProgress) >= PROGRESS_RESOLUTION) {
+            shownProgress = progress;
+            progressSlider.setValue(progress);
+        }
+        updateTimerLabel(current, total);
+    }
+
+    private void updateTimerLabel(double current, double total) {
+        int currentSecond = (int) current;
+        int totalSecond = (int) total;
+        if (currentSecond == shownCurrentSecond && totalSecond == shownTotalSecond) {
+            return;
+        }
+        shownCurrentSecond = currentSecond;
+        shownTotalSecond = totalSecond;
+        timerText.setLength(0);
+        TimeFormatter.appendTime(timerText, current).append(" / ");
+        TimeFormatter.appendTime(timerText, total);
+        timerLabel.setText(timerText.toString());
+    }
+
+    private void resetProgress() {
+        if (progressTimeline != null) {
+            progressTimeline.stop();
+        }
+        shownProgress = -1;
+        shownCurrentSecond = -1;
+        shownTotalSecond = -1;
+    }
+
+    public int getProgressSubscriptionCount() {
+        return progressTimeline != null && progressTimeline.getStatus() == Animation.Status.RUNNING ? 1 : 0;
     }
 
-    private void updateTimerLabel(Duration current, Duration total) {
-        String currentTime = TimeFormatter.formatTime(current.toSeconds());
-        String totalTime = TimeFormatter.formatTime(total.toSeconds());
-        timerLabel.setText(currentTime + " / " + totalTime);
+    public int getVolumeListenerCount() {
+        return volumeController.getListenerCount();
     }
 
     public Duration getTotalDuration() {
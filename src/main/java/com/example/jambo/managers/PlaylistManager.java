@@ -1,11 +1,19 @@
 package com.example.jambo.managers;
 
 import com.example.jambo.Interfaces.PlaylistInterface;
-import com.example.jambo.services.MetadataService;
+import com.example.jambo.Interfaces.PlaylistInterface.PlaylistChangeEvent;
+import com.example.jambo.services.DuplicateDetectionService;
+import com.example.jambo.services.LibraryImportService;
+import com.example.jambo.services.MetadataExtractionService;
+import com.example.jambo.services.LibraryWatchService;
+import com.example.jambo.services.SearchIndexService;
+import com.example.jambo.ui.SongListCell;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.scene.control.ListView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,64 +21,153 @@ import org.slf4j.LoggerFactory;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 import org.springframework.stereotype.Component;
 
 @Component
-public class PlaylistManager implements PlaylistInterface.PlaylistChangeListener {
+public class PlaylistManager implements PlaylistInterface.PlaylistChangeListener, SongListCell.LabelSource {
+    private static final int LABEL_CACHE_LIMIT = 50_000;
+    private static final int PREFETCH_ROWS = 20;
+    private static final long REFILTER_DELAY_MS = 150;
+
     private final PlaylistInterface playlistService;
-    private final ListView<String> songListView;
-    private final MetadataService metadataService;
-    private boolean isUpdating = false;
+    private final ListView<File> songListView;
+    private final MetadataExtractionService extractionService;
+    private final SearchIndexService searchIndex;
+    private final ObservableList<File> songs = FXCollections.observableArrayList();
+    private final FilteredList<File> visibleSongs = new FilteredList<>(songs);
+    private final Map<File, String> labels = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, String> eldest) {
+            return size() > LABEL_CACHE_LIMIT;
+        }
+    };
+    private final Map<File, CompletableFuture<String>> pendingLabels = new ConcurrentHashMap<>();
+    private String shownPlaylist;
+    private long shownVersion = -1;
+    private volatile String activeQuery;
+    private final AtomicBoolean refilterPending = new AtomicBoolean(false);
     private static final Logger logger = LoggerFactory.getLogger(PlaylistManager.class);
 
-    public PlaylistManager(PlaylistInterface playlistService, ListView<String> songListView) {
+    public PlaylistManager(PlaylistInterface playlistService, MetadataExtractionService extractionService,
+                           SearchIndexService searchIndex, ListView<File> songListView) {
         this.playlistService = playlistService;
         this.songListView = songListView;
-        this.metadataService = new MetadataService();
+        this.extractionService = extractionService;
+        this.searchIndex = searchIndex;
+        this.songListView.setItems(visibleSongs);
+        this.songListView.setCellFactory(view -> new SongListCell(this));
         this.playlistService.addPlaylistChangeListener(this);
+        this.searchIndex.addChangeListener(this::onIndexChanged);
     }
 
     @Override
-    public void onPlaylistChanged(String playlistName, List<File> songs) {
+    public String getCachedLabel(File song) {
+        synchronized (labels) {
+            return labels.get(song);
+        }
+    }
+
+    private void cacheLabel(File song, String label) {
+        if (label != null) {
+            synchronized (labels) {
+                labels.put(song, label);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> requestLabel(File song) {
+        return requestLabel(song, MetadataExtractionService.Priority.VISIBLE);
+    }
+
+    private CompletableFuture<String> requestLabel(File song, MetadataExtractionService.Priority priority) {
+        return pendingLabels.computeIfAbsent(song, file -> extractionService.submitFormat(file, priority)
+                .whenComplete((label, error) -> {
+                    cacheLabel(file, label);
+                    pendingLabels.remove(file);
+                }));
+    }
+
+    @Override
+    public void prefetchAround(int index) {
+        List<File> items = songListView.getItems();
+        int end = Math.min(items.size(), index + PREFETCH_ROWS + 1);
+        for (int i = Math.max(0, index + 1); i < end; i++) {
+            File song = items.get(i);
+            if (getCachedLabel(song) == null && !pendingLabels.containsKey(song)) {
+                requestLabel(song, MetadataExtractionService.Priority.PREFETCH);
+            }
+        }
+    }
+
+    @Override
+    public void onPlaylistChanged(String playlistName, List<PlaylistChangeEvent> changes) {
         if (playlistName.equals(playlistService.getCurrentPlaylistName())) {
-            updateSongListView(new ArrayList<>(songs));
+            Platform.runLater(() -> applyChanges(playlistName, changes));
         }
     }
 
     @Override
-    public void onCurrentPlaylistChanged(String newPlaylistName) {
-        updateSongListView(playlistService.getPlaylistSongs(newPlaylistName));
-    }
-
-    private void updateSongListView(List<File> songs) {
-        if (isUpdating) return;
-
-        isUpdating = true;
-        try {
-            List<String> formattedSongs = songs.parallelStream()
-                    .map(song -> {
-                        try {
-                            return metadataService.formatSongMetadata(song);
-                        } catch (Exception e) {
-                            logger.warn("Failed to format metadata for {}, using filename", song.getName());
-                            return song.getName();
-                        }
-                    })
-                    .collect(Collectors.toList());
-            Platform.runLater(() -> {
-                songListView.getItems().clear();
-                songListView.setItems(FXCollections.observableArrayList(formattedSongs));
-            });
-        } finally {
-            isUpdating = false;
+    public void onCurrentPlaylistChanged(String newPlaylistName, List<File> songs, long version) {
+        Platform.runLater(() -> {
+            shownPlaylist = newPlaylistName;
+            shownVersion = version;
+            this.songs.setAll(songs);
+        });
+    }
+
+    private void applyChanges(String playlistName, List<PlaylistChangeEvent> changes) {
+        if (!playlistName.equals(shownPlaylist)) {
+            return;
+        }
+        boolean relabelled = false;
+        for (PlaylistChangeEvent change : changes) {
+            if (change.version() <= shownVersion) {
+                continue;
+            }
+            shownVersion = change.version();
+            if (change instanceof PlaylistChangeEvent.Inserted inserted) {
+                songs.addAll(inserted.from(), inserted.songs());
+            } else if (change instanceof PlaylistChangeEvent.Removed removed) {
+                removeRuns(removed.indices());
+            } else if (change instanceof PlaylistChangeEvent.Moved moved) {
+                songs.add(moved.to(), songs.remove(moved.from()));
+            } else if (change instanceof PlaylistChangeEvent.Replaced replaced) {
+                songs.set(replaced.index(), replaced.song());
+                relabelled |= replaced.song().equals(replaced.previous());
+            } else if (change instanceof PlaylistChangeEvent.Cleared) {
+                songs.clear();
+            }
+        }
+        // Cells skip updates when the item is equal, so same-file replacements need a repaint.
+        if (relabelled) {
+            songListView.refresh();
+        }
+    }
+
+    private void removeRuns(int[] indices) {
+        int end = indices.length;
+        while (end > 0) {
+            int start = end - 1;
+            while (start > 0 && indices[start - 1] == indices[start] - 1) {
+                start--;
+            }
+            songs.remove(indices[start], indices[end - 1] + 1);
+            end = start;
         }
     }
 
@@ -96,45 +193,84 @@ public class PlaylistManager implements PlaylistInterface.PlaylistChangeListener
 
     @Override
     public void addSong(File songFile, String formattedInfo) {
-        if (isUpdating) return;
+        cacheLabel(songFile, formattedInfo);
+        if (playlistService.addSong(songFile)) {
+            logger.info("Added song: {}", songFile.getName());
+        } else {
+            logger.warn("Skipping duplicate song: {}", songFile.getName());
+        }
+    }
 
-        isUpdating = true;
-        try {
-            if (!isDuplicateSong(songFile)) {
-                playlistService.addSong(songFile);
-                Platform.runLater(() -> {
-                    if (!songListView.getItems().contains(formattedInfo)) {
-                        songListView.getItems().add(formattedInfo);
-                    }
-                });
-                logger.info("Added song: {}", songFile.getName());
-            }
-        } catch (Exception e) {
-            logger.error("Failed to add song {}: {}", songFile.getName(), e.getMessage());
-            throw e;
-        } finally {
-            isUpdating = false;
+    public void addSongs(List<LibraryImportService.ImportedTrack> tracks) {
+        addSongs(playlistService.getCurrentPlaylistName(), tracks);
+    }
+
+    public void addSongs(String playlistName, List<LibraryImportService.ImportedTrack> tracks) {
+        List<File> files = new ArrayList<>(tracks.size());
+        for (LibraryImportService.ImportedTrack track : tracks) {
+            cacheLabel(track.file(), track.formattedInfo());
+            files.add(track.file());
         }
+        List<File> added = playlistService.addSongs(playlistName, files);
+        logger.info("Added {} songs to {}", added.size(), playlistName);
     }
 
-    private boolean isDuplicateSong(File songFile) {
-        boolean isDuplicate = playlistService.getCurrentPlaylistSongs().stream()
-                .anyMatch(existingFile -> existingFile.getAbsolutePath().equals(songFile.getAbsolutePath()));
+    public void applyLibraryChange(LibraryWatchService.LibraryChange change,
+                                   List<LibraryImportService.ImportedTrack> created,
+                                   Map<File, String> modified) {
+        if (!change.playlistName().equals(playlistService.getCurrentPlaylistName())) {
+            playlistService.removeSongsIf(change.playlistName(), change::isDeleted);
+            playlistService.addSongs(change.playlistName(),
+                    created.stream().map(LibraryImportService.ImportedTrack::file).toList());
+            return;
+        }
 
-        if (isDuplicate) {
-            logger.warn("Skipping duplicate song: {}", songFile.getName());
+        modified.forEach(this::cacheLabel);
+        modified.keySet().forEach(searchIndex::reindex);
+        String playlistName = change.playlistName();
+        List<File> current = playlistService.getPlaylistSongs(playlistName);
+        IntStream.Builder deleted = IntStream.builder();
+        for (int index = 0; index < current.size(); index++) {
+            File song = current.get(index);
+            if (change.isDeleted(song)) {
+                deleted.add(index);
+            } else if (modified.containsKey(song)) {
+                playlistService.replaceSong(playlistName, index, song);
+            }
         }
-        return isDuplicate;
+        playlistService.removeSongs(deleted.build().toArray());
+        addSongs(created);
     }
 
     public void removeSong(int index) {
         playlistService.removeSong(index);
-        songListView.getItems().remove(index);
     }
 
     public void clearPlaylist() {
         playlistService.clearPlaylist();
-        songListView.getItems().clear();
+    }
+
+    public Map<String, List<File>> getAllPlaylists() {
+        Map<String, List<File>> playlists = new LinkedHashMap<>();
+        for (String playlistName : playlistService.getPlaylistNames()) {
+            playlists.put(playlistName, playlistService.getPlaylistSongs(playlistName));
+        }
+        return playlists;
+    }
+
+    /**
+     * Keeps the first copy of each duplicated recording in every playlist and removes the rest.
+     */
+    public int collapseDuplicates(List<DuplicateDetectionService.DuplicateGroup> groups) {
+        int removed = 0;
+        for (String playlistName : playlistService.getPlaylistNames()) {
+            Set<File> redundant = DuplicateDetectionService.redundantCopies(
+                    playlistService.getPlaylistSongs(playlistName), groups);
+            if (!redundant.isEmpty()) {
+                removed += playlistService.removeSongsIf(playlistName, redundant::contains);
+            }
+        }
+        return removed;
     }
 
     public void toggleShuffle() {
@@ -142,15 +278,60 @@ public class PlaylistManager implements PlaylistInterface.PlaylistChangeListener
     }
 
     public int getNextSongIndex() {
-        return playlistService.getNextSongIndex(
-                songListView.getSelectionModel().getSelectedIndex()
-        );
+        return playlistService.getNextSongIndex(getSelectedSongIndex());
+    }
+
+    public int peekNextSongIndex() {
+        return playlistService.peekNextSongIndex(getSelectedSongIndex());
     }
 
     public int getPreviousSongIndex() {
-        return playlistService.getPreviousSongIndex(
-                songListView.getSelectionModel().getSelectedIndex()
-        );
+        return playlistService.getPreviousSongIndex(getSelectedSongIndex());
+    }
+
+    public int getSelectedSongIndex() {
+        int viewIndex = songListView.getSelectionModel().getSelectedIndex();
+        return viewIndex >= 0 ? visibleSongs.getSourceIndex(viewIndex) : -1;
+    }
+
+    public boolean selectSong(int index) {
+        int viewIndex = index >= 0 && index < songs.size() ? visibleSongs.getViewIndex(index) : -1;
+        if (viewIndex < 0) {
+            return false;
+        }
+        songListView.getSelectionModel().select(viewIndex);
+        songListView.scrollTo(viewIndex);
+        return true;
+    }
+
+    public void filterSongs(String query) {
+        activeQuery = query == null || query.isBlank() ? null : query;
+        applyQuery();
+    }
+
+    // Songs added or indexed after the query was typed are picked up by searching again, at most
+    // once per delay while the index keeps changing.
+    private void onIndexChanged() {
+        if (activeQuery != null && refilterPending.compareAndSet(false, true)) {
+            CompletableFuture.delayedExecutor(REFILTER_DELAY_MS, TimeUnit.MILLISECONDS)
+                    .execute(() -> Platform.runLater(() -> {
+                        refilterPending.set(false);
+                        applyQuery();
+                    }));
+        }
+    }
+
+    private void applyQuery() {
+        String query = activeQuery;
+        if (query == null) {
+            visibleSongs.setPredicate(null);
+            return;
+        }
+        long startNanos = System.nanoTime();
+        Set<File> matches = searchIndex.search(query);
+        visibleSongs.setPredicate(matches::contains);
+        logger.debug("Filtered to {} of {} songs in {} ms", visibleSongs.size(), songs.size(),
+                (System.nanoTime() - startNanos) / 1_000_000);
     }
 
     public File getSongFile(int index) {
@@ -161,31 +342,67 @@ public class PlaylistManager implements PlaylistInterface.PlaylistChangeListener
         return playlistService.getCurrentPlaylistSongs();
     }
 
-    public void loadSongsFromJson(String filename) {
+    public void loadPlaylists(String legacyJsonFile) {
+        if (playlistService.loadPersistedPlaylists()) {
+            for (String playlistName : playlistService.getPlaylistNames()) {
+                pruneMissingSongs(playlistName);
+            }
+        } else if (new File(legacyJsonFile).exists()) {
+            logger.info("Migrating songs from {}", legacyJsonFile);
+            loadSongsFromJson(legacyJsonFile);
+        }
+    }
+
+    private void pruneMissingSongs(String playlistName) {
+        List<File> songs = playlistService.getPlaylistSongs(playlistName);
+        List<CompletableFuture<Boolean>> existence = songs.stream()
+                .map(file -> extractionService.submit(file, MetadataExtractionService.Priority.BACKGROUND, File::exists))
+                .toList();
+
+        CompletableFuture.allOf(existence.toArray(CompletableFuture<?>[]::new)).whenComplete((ignored, error) -> {
+            Set<File> missing = new HashSet<>();
+            for (int i = 0; i < songs.size(); i++) {
+                if (!Boolean.TRUE.equals(existence.get(i).getNow(true))) {
+                    missing.add(songs.get(i));
+                }
+            }
+            if (!missing.isEmpty()) {
+                Platform.runLater(() -> {
+                    int removed = playlistService.removeSongsIf(playlistName, missing::contains);
+                    logger.info("Removed {} missing songs from playlist '{}'", removed, playlistName);
+                });
+            }
+        });
+    }
+
+    private void loadSongsFromJson(String filename) {
         try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
             Type listType = new TypeToken<ArrayList<String>>(){}.getType();
             List<String> songPaths = new Gson().fromJson(reader, listType);
 
             if (songPaths != null) {
-                List<File> validFiles = songPaths.parallelStream()
+                List<File> savedFiles = songPaths.stream()
                         .map(File::new)
-                        .filter(File::exists)
                         .sorted(Comparator.comparing(File::getAbsolutePath))
                         .toList();
+                List<CompletableFuture<Boolean>> existence = savedFiles.stream()
+                        .map(file -> extractionService.submit(file, MetadataExtractionService.Priority.BACKGROUND,
+                                File::exists))
+                        .toList();
 
-                logger.info("Loading {} valid songs from {}", validFiles.size(), filename);
-
-                Platform.runLater(() -> {
-                    validFiles.forEach(file -> {
-                        try {
-                            String formattedMetadata = metadataService.formatSongMetadata(file);
-                            addSong(file, formattedMetadata);
-                        } catch (Exception e) {
-                            logger.warn("Using filename for {} due to metadata error", file.getName());
-                            addSong(file, file.getName());
+                CompletableFuture.allOf(existence.toArray(CompletableFuture<?>[]::new)).whenComplete((ignored, error) -> {
+                    List<LibraryImportService.ImportedTrack> validTracks = new ArrayList<>();
+                    for (int i = 0; i < savedFiles.size(); i++) {
+                        if (Boolean.TRUE.equals(existence.get(i).getNow(false))) {
+                            validTracks.add(new LibraryImportService.ImportedTrack(savedFiles.get(i), null));
                         }
+                    }
+                    logger.info("Loading {} valid songs from {}", validTracks.size(), filename);
+                    Platform.runLater(() -> {
+                        addSongs(validTracks);
+                        playlistService.persist();
+                        logger.info("{} songs loaded successfully", validTracks.size());
                     });
-                    logger.info("{} songs loaded successfully", validFiles.size());
                 });
             }
         } catch (Exception e) {
@@ -193,15 +410,7 @@ public class PlaylistManager implements PlaylistInterface.PlaylistChangeListener
         }
     }
 
-    public void saveSongsToJson(String filename) {
-        try (FileWriter writer = new FileWriter(filename)) {
-            List<String> songPaths = getSongFiles().stream()
-                    .map(File::getAbsolutePath)
-                    .collect(Collectors.toList());
-            new Gson().toJson(songPaths, writer);
-            logger.info("Saved {} songs to {}", songPaths.size(), filename);
-        } catch (Exception e) {
-            logger.error("Failed to save songs to {}: {}", filename, e.getMessage());
-        }
+    public void savePlaylists() {
+        playlistService.persist();
     }
 }
\ No newline at end of file
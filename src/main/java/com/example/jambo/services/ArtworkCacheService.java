@@ -0,0 +1,191 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import javafx.scene.image.Image;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ArtworkCacheService {
+    private static final Logger logger = LoggerFactory.getLogger(ArtworkCacheService.class);
+
+    private final long memoryBudgetBytes;
+    private final int thumbnailSize;
+    private final Path thumbnailDirectory;
+    private final Map<String, Image> thumbnails = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes = 0;
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong decodes = new AtomicLong();
+
+    public ArtworkCacheService(long memoryBudgetBytes, int thumbnailSize, Path thumbnailDirectory) {
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.thumbnailSize = thumbnailSize;
+        this.thumbnailDirectory = thumbnailDirectory;
+    }
+
+    public static String hash(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    public Image getThumbnail(MetadataInterface.ArtworkRef artwork, Callable<byte[]> artworkLoader) throws Exception {
+        String key = artwork.hash();
+        synchronized (thumbnails) {
+            Image cached = thumbnails.get(key);
+            if (cached != null) {
+                memoryHits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        Image image = readStoredThumbnail(key);
+        if (image != null) {
+            diskHits.incrementAndGet();
+        } else {
+            byte[] data = artworkLoader.call();
+            if (data == null) {
+                return null;
+            }
+            image = decodeThumbnail(key, data);
+            decodes.incrementAndGet();
+        }
+
+        if (!image.isError()) {
+            remember(key, image);
+        }
+        return image;
+    }
+
+    private void remember(String key, Image image) {
+        long imageBytes = estimateSize(image);
+        synchronized (thumbnails) {
+            Image previous = thumbnails.put(key, image);
+            if (previous != null) {
+                usedBytes -= estimateSize(previous);
+            }
+            usedBytes += imageBytes;
+
+            Iterator<Map.Entry<String, Image>> it = thumbnails.entrySet().iterator();
+            while (usedBytes > memoryBudgetBytes && it.hasNext()) {
+                Map.Entry<String, Image> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                usedBytes -= estimateSize(eldest.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    private static long estimateSize(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4L;
+    }
+
+    private Image readStoredThumbnail(String key) {
+        if (thumbnailDirectory == null) {
+            return null;
+        }
+        Path stored = thumbnailDirectory.resolve(key + ".png");
+        if (!Files.isRegularFile(stored)) {
+            return null;
+        }
+        try {
+            return new Image(new ByteArrayInputStream(Files.readAllBytes(stored)));
+        } catch (IOException e) {
+            logger.warn("Failed to read stored thumbnail {}: {}", stored, e.getMessage());
+            return null;
+        }
+    }
+
+    private Image decodeThumbnail(String key, byte[] data) {
+        if (thumbnailDirectory != null) {
+            try {
+                byte[] png = scaleToPng(data);
+                if (png != null) {
+                    storeThumbnail(key, png);
+                    return new Image(new ByteArrayInputStream(png));
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to create thumbnail for artwork {}: {}", key, e.getMessage());
+            }
+        }
+        return new Image(new ByteArrayInputStream(data), thumbnailSize, thumbnailSize, true, true);
+    }
+
+    private byte[] scaleToPng(byte[] data) throws IOException {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(data));
+        if (source == null) {
+            return null;
+        }
+        double scale = Math.min(1.0, (double) thumbnailSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(scaled, "png", out);
+        return out.toByteArray();
+    }
+
+    private void storeThumbnail(String key, byte[] png) throws IOException {
+        Files.createDirectories(thumbnailDirectory);
+        Path target = thumbnailDirectory.resolve(key + ".png");
+        Path temp = thumbnailDirectory.resolve(key + ".png.tmp");
+        Files.write(temp, png);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getUsedBytes() {
+        synchronized (thumbnails) {
+            return usedBytes;
+        }
+    }
+
+    public int size() {
+        synchronized (thumbnails) {
+            return thumbnails.size();
+        }
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHitCount() {
+        return diskHits.get();
+    }
+
+    public long getDecodeCount() {
+        return decodes.get();
+    }
+}
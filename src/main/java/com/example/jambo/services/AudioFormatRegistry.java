@@ -0,0 +1,219 @@
+package com.example.jambo.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Identifies audio files by their leading bytes rather than their extension. Sniffers see the
+ * payload after any ID3v2 tags; custom sniffers registered at runtime are consulted before the
+ * built-in ones.
+ */
+public class AudioFormatRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(AudioFormatRegistry.class);
+    private static final int ID3_HEADER_SIZE = 10;
+    private static final int SNIFF_WINDOW = 4096;
+    private static final int SYNC_SEARCH_WINDOW = 64 * 1024;
+    private static final int MAX_ID3_TAGS = 8;
+
+    /**
+     * @param extension the extension jaudiotagger should read the file as
+     * @param playable  whether JavaFX Media can decode it
+     */
+    public record AudioFormat(String name, String extension, boolean playable) {
+    }
+
+    public static final AudioFormat MP3 = new AudioFormat("MP3", "mp3", true);
+    public static final AudioFormat MP4 = new AudioFormat("MP4", "m4a", true);
+    public static final AudioFormat PROTECTED_MP4 = new AudioFormat("MP4 (DRM)", "m4p", false);
+    public static final AudioFormat WAV = new AudioFormat("WAV", "wav", true);
+    public static final AudioFormat COMPRESSED_WAV = new AudioFormat("WAV (compressed)", "wav", false);
+    public static final AudioFormat AIFF = new AudioFormat("AIFF", "aif", true);
+    public static final AudioFormat AIFC = new AudioFormat("AIFF-C", "aif", false);
+    public static final AudioFormat FLAC = new AudioFormat("FLAC", "flac", false);
+    public static final AudioFormat OGG = new AudioFormat("Ogg", "ogg", false);
+
+    @FunctionalInterface
+    public interface FormatSniffer {
+        /**
+         * @param header big-endian view of up to the first 4 KB of the payload, starting at position 0
+         * @return the detected format, or null to let the next sniffer try
+         */
+        AudioFormat sniff(ByteBuffer header);
+    }
+
+    private final List<FormatSniffer> sniffers = new CopyOnWriteArrayList<>(List.of(
+            AudioFormatRegistry::sniffFlac,
+            AudioFormatRegistry::sniffOgg,
+            AudioFormatRegistry::sniffMp4,
+            AudioFormatRegistry::sniffWav,
+            AudioFormatRegistry::sniffAiff,
+            AudioFormatRegistry::sniffMpeg));
+
+    public void register(FormatSniffer sniffer) {
+        sniffers.add(0, sniffer);
+    }
+
+    /**
+     * @return the detected format, or null when no sniffer recognises the file
+     */
+    public AudioFormat detect(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long payloadStart = skipId3v2Tags(channel);
+            if (payloadStart < 0) {
+                return null;
+            }
+            ByteBuffer header = read(channel, payloadStart, SNIFF_WINDOW);
+            for (FormatSniffer sniffer : sniffers) {
+                AudioFormat format = sniffer.sniff(header.duplicate().order(ByteOrder.BIG_ENDIAN));
+                if (format != null) {
+                    return format;
+                }
+            }
+            // Padding or junk can push the first MPEG frame well past the first window.
+            if (header.limit() == SNIFF_WINDOW) {
+                return sniffMpeg(read(channel, payloadStart, SYNC_SEARCH_WINDOW));
+            }
+            return null;
+        }
+    }
+
+    // Re-tagging tools sometimes prepend a new ID3v2 tag without removing the old one.
+    private static long skipId3v2Tags(FileChannel channel) throws IOException {
+        long payloadStart = 0;
+        for (int i = 0; i < MAX_ID3_TAGS; i++) {
+            ByteBuffer head = read(channel, payloadStart, ID3_HEADER_SIZE);
+            if (head.limit() < ID3_HEADER_SIZE || head.get(0) != 'I' || head.get(1) != 'D' || head.get(2) != '3') {
+                break;
+            }
+            int tagSize = synchsafe(head, 6);
+            if (tagSize < 0) {
+                return -1;
+            }
+            payloadStart += ID3_HEADER_SIZE + (long) tagSize + ((head.get(5) & 0x10) != 0 ? 10 : 0);
+        }
+        return payloadStart;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) <= 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+    public boolean isPlayable(File file) {
+        try {
+            AudioFormat format = detect(file);
+            return format != null && format.playable();
+        } catch (IOException e) {
+            logger.debug("Could not sniff {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    private static AudioFormat sniffFlac(ByteBuffer header) {
+        return startsWith(header, 0, "fLaC") ? FLAC : null;
+    }
+
+    private static AudioFormat sniffOgg(ByteBuffer header) {
+        return startsWith(header, 0, "OggS") ? OGG : null;
+    }
+
+    private static AudioFormat sniffMp4(ByteBuffer header) {
+        if (!startsWith(header, 4, "ftyp")) {
+            return null;
+        }
+        return startsWith(header, 8, "M4P ") ? PROTECTED_MP4 : MP4;
+    }
+
+    private static AudioFormat sniffWav(ByteBuffer header) {
+        if (!startsWith(header, 0, "RIFF") || !startsWith(header, 8, "WAVE")) {
+            return null;
+        }
+        ByteBuffer chunks = header.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int offset = 12;
+        while (offset + 10 <= chunks.limit()) {
+            long chunkSize = Integer.toUnsignedLong(chunks.getInt(offset + 4));
+            if (startsWith(chunks, offset, "fmt ")) {
+                int encoding = chunks.getShort(offset + 8) & 0xFFFF;
+                // JavaFX only decodes PCM, which extensible headers normally carry as well.
+                return encoding == 1 || encoding == 0xFFFE ? WAV : COMPRESSED_WAV;
+            }
+            offset += 8 + chunkSize + (chunkSize & 1);
+            if (offset < 0) {
+                break;
+            }
+        }
+        return WAV;
+    }
+
+    private static AudioFormat sniffAiff(ByteBuffer header) {
+        if (!startsWith(header, 0, "FORM")) {
+            return null;
+        }
+        if (startsWith(header, 8, "AIFF")) {
+            return AIFF;
+        }
+        return startsWith(header, 8, "AIFC") ? AIFC : null;
+    }
+
+    private static AudioFormat sniffMpeg(ByteBuffer header) {
+        int limit = header.limit() - 4;
+        for (int offset = 0; offset <= limit; offset++) {
+            if ((header.get(offset) & 0xFF) != 0xFF || (header.get(offset + 1) & 0xE0) != 0xE0) {
+                continue;
+            }
+            Mp3Probe.FrameHeader frame = Mp3Probe.parseFrameHeader(header.getInt(offset));
+            if (frame == null) {
+                continue;
+            }
+            // A second frame header where the first one ends rules out stray sync bytes in junk data.
+            int next = offset + frame.frameLength();
+            boolean confirmed = next + 4 <= header.limit()
+                    ? Mp3Probe.parseFrameHeader(header.getInt(next)) != null
+                    : header.limit() < header.capacity();
+            if (confirmed) {
+                return MP3;
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int offset, String magic) {
+        if (offset + magic.length() > buffer.limit()) {
+            return false;
+        }
+        byte[] expected = magic.getBytes(StandardCharsets.ISO_8859_1);
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(offset + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int synchsafe(ByteBuffer buffer, int offset) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = buffer.get(offset + i) & 0xFF;
+            if ((b & 0x80) != 0) {
+                return -1;
+            }
+            value = (value << 7) | b;
+        }
+        return value;
+    }
+}
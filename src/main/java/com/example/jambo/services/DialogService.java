@@ -9,6 +9,9 @@ import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 @Component
 public class DialogService implements DialogInterface {
     private final MetadataInterface metadataService;
@@ -69,6 +72,17 @@ public class DialogService implements DialogInterface {
         dialog.showAndWait();
     }
 
+    public boolean confirmCollapseDuplicates(List<DuplicateDetectionService.DuplicateGroup> groups) {
+        Set<String> playlists = new TreeSet<>();
+        groups.forEach(group -> playlists.addAll(group.playlists()));
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Confirm Collapse");
+        alert.setHeaderText("Collapse Duplicates");
+        alert.setContentText(groups.size() + " recordings have more than one copy. Within each playlist, keep the "
+                + "first copy and remove the others?\n\nPlaylists checked: " + String.join(", ", playlists));
+        return alert.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK;
+    }
+
     @Override
     public String formatFileSize(long bytes) {
         if (bytes < 1024) return bytes + " B";
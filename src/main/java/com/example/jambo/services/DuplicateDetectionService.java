@@ -0,0 +1,314 @@
+package com.example.jambo.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds copies of the same recording under different paths by hashing only the audio payload, so
+ * re-tagged copies still match. Fingerprints are cached by path, size and modification time.
+ */
+public class DuplicateDetectionService {
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateDetectionService.class);
+    public static final String DEFAULT_CACHE_FILE = "fingerprint_cache.bin";
+    private static final int MAGIC = 0x4A465031;
+    private static final int FORMAT_VERSION = 1;
+    private static final int READ_BUFFER_SIZE = 128 * 1024;
+    private static final int ID3V1_SIZE = 128;
+    private static final int APE_FOOTER_SIZE = 32;
+    private static final int MIN_PAYLOAD_SIZE = 1024;
+
+    private final MetadataExtractionService extractionService;
+    private final AudioFormatRegistry formatRegistry;
+    private final Path cacheFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    private record Entry(long size, long lastModified, String fingerprint) {
+    }
+
+    private record Range(long start, long end) {
+    }
+
+    /**
+     * @param copies    every path holding this recording, in first-seen order
+     * @param playlists the playlists that contain at least one of the copies
+     */
+    public record DuplicateGroup(String fingerprint, List<File> copies, Set<String> playlists) {
+    }
+
+    public DuplicateDetectionService(MetadataExtractionService extractionService, AudioFormatRegistry formatRegistry) {
+        this(extractionService, formatRegistry, Path.of(DEFAULT_CACHE_FILE));
+    }
+
+    public DuplicateDetectionService(MetadataExtractionService extractionService, AudioFormatRegistry formatRegistry,
+                                     Path cacheFile) {
+        this.extractionService = extractionService;
+        this.formatRegistry = formatRegistry;
+        this.cacheFile = cacheFile;
+        load();
+    }
+
+    /**
+     * Hashes every song of the given playlists on the extraction pool, which bounds concurrent reads
+     * per storage device, and groups the songs whose audio is identical.
+     */
+    public CompletableFuture<List<DuplicateGroup>> findDuplicates(Map<String, List<File>> playlists) {
+        long startNanos = System.nanoTime();
+        Map<File, CompletableFuture<String>> fingerprints = new LinkedHashMap<>();
+        playlists.values().forEach(songs -> songs.forEach(song -> fingerprints.computeIfAbsent(song,
+                file -> extractionService.submit(file, MetadataExtractionService.Priority.BACKGROUND,
+                        this::fingerprint))));
+
+        return CompletableFuture.allOf(fingerprints.values().toArray(CompletableFuture<?>[]::new))
+                .handle((ignored, error) -> {
+                    Map<String, List<File>> byFingerprint = new LinkedHashMap<>();
+                    fingerprints.forEach((file, fingerprint) -> {
+                        if (!fingerprint.isCompletedExceptionally() && fingerprint.join() != null) {
+                            byFingerprint.computeIfAbsent(fingerprint.join(), key -> new ArrayList<>()).add(file);
+                        }
+                    });
+                    Map<String, Set<File>> members = new LinkedHashMap<>();
+                    playlists.forEach((name, songs) -> members.put(name, new HashSet<>(songs)));
+                    List<DuplicateGroup> groups = new ArrayList<>();
+                    byFingerprint.forEach((fingerprint, copies) -> {
+                        if (copies.size() > 1) {
+                            Set<String> containing = new TreeSet<>();
+                            members.forEach((name, songs) -> {
+                                if (copies.stream().anyMatch(songs::contains)) {
+                                    containing.add(name);
+                                }
+                            });
+                            groups.add(new DuplicateGroup(fingerprint, List.copyOf(copies), containing));
+                        }
+                    });
+                    save();
+                    logger.info("Fingerprinted {} files in {} ms, found {} duplicate groups", fingerprints.size(),
+                            (System.nanoTime() - startNanos) / 1_000_000, groups.size());
+                    return groups;
+                });
+    }
+
+    /**
+     * Songs in {@code songs} whose recording already appeared earlier in the same list.
+     */
+    public static Set<File> redundantCopies(List<File> songs, List<DuplicateGroup> groups) {
+        Map<File, String> fingerprintOf = new HashMap<>();
+        for (DuplicateGroup group : groups) {
+            group.copies().forEach(copy -> fingerprintOf.put(copy, group.fingerprint()));
+        }
+        Set<String> seen = new HashSet<>();
+        Set<File> redundant = new HashSet<>();
+        for (File song : songs) {
+            String fingerprint = fingerprintOf.get(song);
+            if (fingerprint != null && !seen.add(fingerprint)) {
+                redundant.add(song);
+            }
+        }
+        return redundant;
+    }
+
+    /**
+     * @return the hash of the audio payload, or null when the payload is too small to identify a
+     * recording, as with tag-only or truncated files
+     */
+    public String fingerprint(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+        Entry cached = entries.get(path);
+        if (cached != null && cached.size() == size && cached.lastModified() == lastModified) {
+            return cached.fingerprint();
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Range payload = payloadRange(channel, formatRegistry.detect(file));
+            if (payload.end() - payload.start() < MIN_PAYLOAD_SIZE) {
+                logger.debug("Not fingerprinting {}: only {} bytes of audio", file, payload.end() - payload.start());
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            long position = payload.start();
+            while (position < payload.end()) {
+                buffer.clear().limit((int) Math.min(READ_BUFFER_SIZE, payload.end() - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read;
+                buffer.flip();
+                digest.update(buffer);
+            }
+        }
+        String fingerprint = HexFormat.of().formatHex(digest.digest());
+        entries.put(path, new Entry(size, lastModified, fingerprint));
+        dirty = true;
+        return fingerprint;
+    }
+
+    private Range payloadRange(FileChannel channel, AudioFormatRegistry.AudioFormat format) throws IOException {
+        long size = channel.size();
+        if (format == AudioFormatRegistry.WAV || format == AudioFormatRegistry.COMPRESSED_WAV) {
+            return chunk(channel, 12, "data", ByteOrder.LITTLE_ENDIAN, size);
+        }
+        if (format == AudioFormatRegistry.AIFF || format == AudioFormatRegistry.AIFC) {
+            return chunk(channel, 12, "SSND", ByteOrder.BIG_ENDIAN, size);
+        }
+        if (format == AudioFormatRegistry.MP4 || format == AudioFormatRegistry.PROTECTED_MP4) {
+            return mediaData(channel, size);
+        }
+        if (format == AudioFormatRegistry.MP3) {
+            return mpegPayload(channel, size);
+        }
+        return new Range(0, size);
+    }
+
+    private static Range mpegPayload(FileChannel channel, long size) throws IOException {
+        long start = 0;
+        ByteBuffer head = read(channel, 0, 10);
+        while (head.remaining() == 10 && head.get(0) == 'I' && head.get(1) == 'D' && head.get(2) == '3') {
+            int tagSize = 0;
+            for (int i = 6; i < 10; i++) {
+                tagSize = (tagSize << 7) | (head.get(i) & 0x7F);
+            }
+            start = Math.min(size, start + 10L + tagSize + ((head.get(5) & 0x10) != 0 ? 10 : 0));
+            head = read(channel, start, 10);
+        }
+        long end = size;
+        if (end - start >= ID3V1_SIZE && ascii(read(channel, end - ID3V1_SIZE, 3)).equals("TAG")) {
+            end -= ID3V1_SIZE;
+        }
+        if (end - start >= APE_FOOTER_SIZE) {
+            ByteBuffer footer = read(channel, end - APE_FOOTER_SIZE, APE_FOOTER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (ascii(footer.duplicate().limit(8)).equals("APETAGEX")) {
+                long tagSize = Integer.toUnsignedLong(footer.getInt(12));
+                boolean hasHeader = (footer.getInt(20) & 0x80000000) != 0;
+                end = Math.max(start, end - tagSize - (hasHeader ? APE_FOOTER_SIZE : 0));
+            }
+        }
+        return new Range(start, end);
+    }
+
+    private static Range chunk(FileChannel channel, long offset, String id, ByteOrder order, long size)
+            throws IOException {
+        while (offset + 8 <= size) {
+            ByteBuffer header = read(channel, offset, 8).order(order);
+            long chunkSize = Integer.toUnsignedLong(header.getInt(4));
+            if (ascii(header.duplicate().limit(4)).equals(id)) {
+                return new Range(offset + 8, Math.min(size, offset + 8 + chunkSize));
+            }
+            offset += 8 + chunkSize + (chunkSize & 1);
+        }
+        return new Range(0, size);
+    }
+
+    private static Range mediaData(FileChannel channel, long size) throws IOException {
+        long offset = 0;
+        while (offset + 8 <= size) {
+            ByteBuffer header = read(channel, offset, 16);
+            long boxSize = Integer.toUnsignedLong(header.getInt(0));
+            int headerSize = 8;
+            if (boxSize == 1 && header.remaining() == 16) {
+                boxSize = header.getLong(8);
+                headerSize = 16;
+            } else if (boxSize == 0) {
+                boxSize = size - offset;
+            }
+            if (boxSize < headerSize) {
+                break;
+            }
+            if (ascii(header.duplicate().position(4).limit(8)).equals("mdat")) {
+                return new Range(offset + headerSize, Math.min(size, offset + boxSize));
+            }
+            offset += boxSize;
+        }
+        return new Range(0, size);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) <= 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static String ascii(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return new String(data, StandardCharsets.ISO_8859_1);
+    }
+
+    private void load() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.warn("Ignoring fingerprint cache {} with unknown format", cacheFile);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                entries.put(path, new Entry(in.readLong(), in.readLong(), in.readUTF()));
+            }
+            logger.info("Loaded {} audio fingerprints from {}", entries.size(), cacheFile);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            logger.info("No fingerprint cache found at {}, starting empty", cacheFile);
+        } catch (Exception e) {
+            logger.error("Failed to load fingerprint cache {}: {}", cacheFile, e.getMessage());
+            entries.clear();
+        }
+    }
+
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+        Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Entry> e : snapshot) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue().size());
+                out.writeLong(e.getValue().lastModified());
+                out.writeUTF(e.getValue().fingerprint());
+            }
+        } catch (IOException e) {
+            logger.error("Failed to write fingerprint cache {}: {}", tempFile, e.getMessage());
+            dirty = true;
+            return;
+        }
+        try {
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Failed to replace fingerprint cache {}: {}", cacheFile, e.getMessage());
+            dirty = true;
+        }
+    }
+}
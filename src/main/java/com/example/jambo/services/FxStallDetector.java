@@ -0,0 +1,232 @@
+package com.example.jambo.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watchdog for the FX application thread. A heartbeat is queued on the FX executor at a fixed
+ * interval; while a heartbeat is overdue by more than the budget, the FX thread's stack is sampled
+ * so the blocking call site can be reported once the thread catches up.
+ */
+public class FxStallDetector {
+    private static final Logger logger = LoggerFactory.getLogger(FxStallDetector.class);
+    public static final String OBJECT_NAME = "com.example.jambo:type=FxStallDetector";
+    private static final String APPLICATION_PACKAGE = "com.example.jambo.";
+    private static final int DUMP_FRAMES = 12;
+
+    private final Executor fxExecutor;
+    private final long heartbeatNanos;
+    private final long budgetNanos;
+    private final long sampleMillis;
+    private final Stall[] history;
+    private final MetricsRegistry.Timer heartbeatLatency;
+    private final MetricsRegistry.Counter stallCounter;
+    private final Map<String, Integer> sampledCallSites = new HashMap<>();
+    private final Map<String, StackTraceElement[]> sampledStacks = new HashMap<>();
+    private ScheduledExecutorService watchdog;
+    private ObjectName registeredName;
+    private volatile Thread fxThread;
+    private volatile long pendingSince;
+    private long lastPosted;
+    private int historyNext;
+    private long stallCount;
+
+    public record Stall(Instant start, long durationMillis, int samples, String callSite,
+                        List<StackTraceElement> stack) {
+    }
+
+    public interface Diagnostics {
+        long getStallCount();
+
+        String dumpStalls();
+
+        void clearStalls();
+    }
+
+    public FxStallDetector(Executor fxExecutor, long heartbeatMillis, long budgetMillis, int historySize,
+                           MetricsRegistry metrics) {
+        this.fxExecutor = fxExecutor;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, heartbeatMillis));
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.sampleMillis = Math.max(1, Math.min(heartbeatMillis, budgetMillis) / 4);
+        this.history = new Stall[Math.max(1, historySize)];
+        this.heartbeatLatency = metrics.timer("fx.heartbeat.latency");
+        this.stallCounter = metrics.counter("fx.stalls");
+    }
+
+    public synchronized void start() {
+        if (budgetNanos <= 0 || watchdog != null) {
+            return;
+        }
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jambo-fx-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleAtFixedRate(this::tick, sampleMillis, sampleMillis, TimeUnit.MILLISECONDS);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new StandardMBean(new DiagnosticsBean(), Diagnostics.class), name);
+                registeredName = name;
+            }
+        } catch (JMException e) {
+            logger.warn("Failed to register FX stall detector MBean: {}", e.getMessage());
+        }
+        logger.info("FX stall detector running with a {} ms budget", TimeUnit.NANOSECONDS.toMillis(budgetNanos));
+    }
+
+    public synchronized void close() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+        if (registeredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            } catch (JMException e) {
+                logger.warn("Failed to unregister FX stall detector MBean: {}", e.getMessage());
+            }
+            registeredName = null;
+        }
+        if (stallCount > 0) {
+            logger.info("FX thread stalls this session:{}", dumpStalls());
+        }
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        long posted = pendingSince;
+        if (posted == 0) {
+            if (now - lastPosted >= heartbeatNanos) {
+                lastPosted = now;
+                pendingSince = now;
+                fxExecutor.execute(() -> onHeartbeat(now));
+            }
+            return;
+        }
+        Thread thread = fxThread;
+        if (thread != null && now - posted >= budgetNanos) {
+            sample(thread.getStackTrace());
+        }
+    }
+
+    private synchronized void sample(StackTraceElement[] stack) {
+        if (stack.length == 0) {
+            return;
+        }
+        String callSite = callSite(stack);
+        sampledCallSites.merge(callSite, 1, Integer::sum);
+        sampledStacks.putIfAbsent(callSite, stack);
+    }
+
+    private void onHeartbeat(long postedNanos) {
+        fxThread = Thread.currentThread();
+        long latency = System.nanoTime() - postedNanos;
+        heartbeatLatency.record(latency);
+        synchronized (this) {
+            if (latency >= budgetNanos) {
+                recordStall(latency);
+            }
+            sampledCallSites.clear();
+            sampledStacks.clear();
+        }
+        pendingSince = 0;
+    }
+
+    private void recordStall(long latencyNanos) {
+        int samples = 0;
+        String callSite = "(not sampled)";
+        int hottest = 0;
+        for (Map.Entry<String, Integer> entry : sampledCallSites.entrySet()) {
+            samples += entry.getValue();
+            if (entry.getValue() > hottest) {
+                hottest = entry.getValue();
+                callSite = entry.getKey();
+            }
+        }
+        StackTraceElement[] stack = sampledStacks.getOrDefault(callSite, new StackTraceElement[0]);
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        Stall stall = new Stall(Instant.now().minusMillis(durationMillis), durationMillis, samples, callSite,
+                List.of(stack));
+        history[historyNext] = stall;
+        historyNext = (historyNext + 1) % history.length;
+        stallCount++;
+        stallCounter.increment();
+        logger.warn("FX thread stalled for {} ms at {}", durationMillis, callSite);
+    }
+
+    private static String callSite(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (className.startsWith(APPLICATION_PACKAGE) && !className.equals(FxStallDetector.class.getName())
+                    && !className.startsWith(FxStallDetector.class.getName() + "$")) {
+                return frame.toString();
+            }
+        }
+        return stack[0].toString();
+    }
+
+    /**
+     * Recorded stalls, newest first.
+     */
+    public synchronized List<Stall> getRecentStalls() {
+        List<Stall> stalls = new ArrayList<>(history.length);
+        for (int i = 1; i <= history.length; i++) {
+            Stall stall = history[Math.floorMod(historyNext - i, history.length)];
+            if (stall != null) {
+                stalls.add(stall);
+            }
+        }
+        return stalls;
+    }
+
+    public synchronized long getStallCount() {
+        return stallCount;
+    }
+
+    public synchronized void clearStalls() {
+        Arrays.fill(history, null);
+        historyNext = 0;
+    }
+
+    public String dumpStalls() {
+        StringBuilder dump = new StringBuilder();
+        for (Stall stall : getRecentStalls()) {
+            dump.append(String.format("%n%s  %d ms (%d samples) at %s", stall.start(), stall.durationMillis(),
+                    stall.samples(), stall.callSite()));
+            stall.stack().stream().limit(DUMP_FRAMES).forEach(frame -> dump.append("\n        at ").append(frame));
+        }
+        return dump.toString();
+    }
+
+    private class DiagnosticsBean implements Diagnostics {
+        @Override
+        public long getStallCount() {
+            return FxStallDetector.this.getStallCount();
+        }
+
+        @Override
+        public String dumpStalls() {
+            return FxStallDetector.this.dumpStalls();
+        }
+
+        @Override
+        public void clearStalls() {
+            FxStallDetector.this.clearStalls();
+        }
+    }
+}
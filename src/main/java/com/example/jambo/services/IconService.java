@@ -4,41 +4,52 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 @Component
 
 public class IconService {
-    private final Map<String, Image> icons = new HashMap<>();
+    private static final int ICON_SIZE = 30;
+    private static final Map<String, String> ICON_PATHS = Map.ofEntries(
+            Map.entry("play", "/images/icons/play_icon.png"),
+            Map.entry("pause", "/images/icons/pause_icon.png"),
+            Map.entry("stop", "/images/icons/stop_icon.png"),
+            Map.entry("previous", "/images/icons/previous_icon.png"),
+            Map.entry("next", "/images/icons/next_icon.png"),
+            Map.entry("loop", "/images/icons/loop_icon.png"),
+            Map.entry("shuffle", "/images/icons/shuffle_icon.png"),
+            Map.entry("mute", "/images/icons/mute_icon.png"),
+            Map.entry("load songs", "/images/icons/folder_icon.png"),
+            Map.entry("clear songs", "/images/icons/delete_icon.png"),
+            Map.entry("settings", "/images/icons/setting_icon.png"),
+            Map.entry("playlist", "/images/icons/playlist_icon.png"));
+
+    private final Map<String, Image> icons = new ConcurrentHashMap<>();
+    private final boolean backgroundLoading;
 
     public IconService() {
-        loadIcons();
+        this(false);
     }
 
-    private void loadIcons() {
-        icons.put("play", loadIcon("/images/icons/play_icon.png"));
-        icons.put("pause", loadIcon("/images/icons/pause_icon.png"));
-        icons.put("stop", loadIcon("/images/icons/stop_icon.png"));
-        icons.put("previous", loadIcon("/images/icons/previous_icon.png"));
-        icons.put("next", loadIcon("/images/icons/next_icon.png"));
-        icons.put("loop", loadIcon("/images/icons/loop_icon.png"));
-        icons.put("shuffle", loadIcon("/images/icons/shuffle_icon.png"));
-        icons.put("mute", loadIcon("/images/icons/mute_icon.png"));
-        icons.put("load songs", loadIcon("/images/icons/folder_icon.png"));
-        icons.put("clear songs", loadIcon("/images/icons/delete_icon.png"));
-        icons.put("settings", loadIcon("/images/icons/setting_icon.png"));
-        icons.put("playlist", loadIcon("/images/icons/playlist_icon.png"));
+    /**
+     * @param backgroundLoading decode icons off the FX thread; the image views fill in once the
+     *                          first frame is already on screen
+     */
+    public IconService(boolean backgroundLoading) {
+        this.backgroundLoading = backgroundLoading;
     }
 
-    private Image loadIcon(String path) {
-        return new Image(Objects.requireNonNull(getClass().getResourceAsStream(path)));
+    private Image loadIcon(String iconName) {
+        String path = Objects.requireNonNull(ICON_PATHS.get(iconName), () -> "Unknown icon " + iconName);
+        String url = Objects.requireNonNull(getClass().getResource(path), path).toExternalForm();
+        return new Image(url, ICON_SIZE, ICON_SIZE, true, true, backgroundLoading);
     }
 
     public ImageView createIconImageView(String iconName) {
-        ImageView imageView = new ImageView(icons.get(iconName));
-        imageView.setFitWidth(30);
-        imageView.setFitHeight(30);
+        ImageView imageView = new ImageView(icons.computeIfAbsent(iconName, this::loadIcon));
+        imageView.setFitWidth(ICON_SIZE);
+        imageView.setFitHeight(ICON_SIZE);
         return imageView;
     }
-}
\ No newline at end of file
+}
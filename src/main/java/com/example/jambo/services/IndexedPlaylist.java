@@ -0,0 +1,390 @@
+package com.example.jambo.services;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+public class IndexedPlaylist {
+    private final Map<String, Node> byPath = new HashMap<>();
+    private final Map<Long, Node> byId = new HashMap<>();
+    private Node root;
+    private long nextId = 1;
+    private long version = 0;
+    private List<File> snapshot = List.of();
+    private long snapshotVersion = 0;
+    private final List<File> view = new AbstractList<>() {
+        @Override
+        public File get(int index) {
+            return IndexedPlaylist.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return IndexedPlaylist.this.size();
+        }
+    };
+
+    private static final class Node {
+        final File file;
+        final String path;
+        final long id;
+        final int priority;
+        int size = 1;
+        Node left;
+        Node right;
+        Node parent;
+
+        Node(File file, String path, long id, int priority) {
+            this.file = file;
+            this.path = path;
+            this.id = id;
+            this.priority = priority;
+        }
+    }
+
+    public IndexedPlaylist() {
+    }
+
+    public IndexedPlaylist(Collection<File> songs) {
+        List<Node> nodes = new ArrayList<>(songs.size());
+        for (File song : songs) {
+            Node node = newNode(song);
+            if (byPath.putIfAbsent(node.path, node) == null) {
+                byId.put(node.id, node);
+                nodes.add(node);
+            }
+        }
+        root = build(nodes);
+        version++;
+    }
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    public synchronized boolean isEmpty() {
+        return root == null;
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    public synchronized boolean contains(File song) {
+        return byPath.containsKey(song.getAbsolutePath());
+    }
+
+    public synchronized File get(int index) {
+        return nodeAt(index).file;
+    }
+
+    public synchronized long entryIdAt(int index) {
+        return nodeAt(index).id;
+    }
+
+    public synchronized int indexOf(File song) {
+        Node node = byPath.get(song.getAbsolutePath());
+        return node != null ? indexOf(node) : -1;
+    }
+
+    public synchronized int indexOfEntry(long entryId) {
+        Node node = byId.get(entryId);
+        return node != null ? indexOf(node) : -1;
+    }
+
+    public synchronized boolean add(File song) {
+        return insert(size(root), song);
+    }
+
+    public synchronized List<File> addAll(Collection<File> songs) {
+        List<Node> nodes = new ArrayList<>(songs.size());
+        List<File> added = new ArrayList<>(songs.size());
+        for (File song : songs) {
+            Node node = newNode(song);
+            if (byPath.putIfAbsent(node.path, node) == null) {
+                byId.put(node.id, node);
+                nodes.add(node);
+                added.add(song);
+            }
+        }
+        if (!nodes.isEmpty()) {
+            root = merge(root, build(nodes));
+            root.parent = null;
+            version++;
+        }
+        return added;
+    }
+
+    public synchronized boolean insert(int index, File song) {
+        if (index < 0 || index > size(root)) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size(root));
+        }
+        String path = song.getAbsolutePath();
+        if (byPath.containsKey(path)) {
+            return false;
+        }
+        Node node = newNode(song);
+        byPath.put(path, node);
+        byId.put(node.id, node);
+        Node[] parts = split(root, index);
+        root = merge(merge(parts[0], node), parts[1]);
+        root.parent = null;
+        version++;
+        return true;
+    }
+
+    public synchronized File remove(int index) {
+        Node removed = nodeAt(index);
+        unlink(index);
+        return removed.file;
+    }
+
+    public synchronized boolean remove(File song) {
+        Node node = byPath.get(song.getAbsolutePath());
+        if (node == null) {
+            return false;
+        }
+        unlink(indexOf(node));
+        return true;
+    }
+
+    public synchronized void move(int from, int to) {
+        nodeAt(from);
+        if (to < 0 || to >= size(root)) {
+            throw new IndexOutOfBoundsException("Index " + to + " out of bounds for size " + size(root));
+        }
+        Node[] left = split(root, from);
+        Node[] right = split(left[1], 1);
+        Node[] target = split(merge(left[0], right[1]), to);
+        root = merge(merge(target[0], right[0]), target[1]);
+        root.parent = null;
+        version++;
+    }
+
+    public synchronized File replace(int index, File song) {
+        Node previous = nodeAt(index);
+        Node existing = byPath.get(song.getAbsolutePath());
+        if (existing == previous) {
+            version++;
+            return previous.file;
+        }
+        if (existing != null) {
+            return null;
+        }
+        unlink(index);
+        insert(index, song);
+        return previous.file;
+    }
+
+    public synchronized List<File> removeIf(Predicate<File> filter) {
+        return removeIf(filter, index -> {
+        });
+    }
+
+    public synchronized List<File> removeIf(Predicate<File> filter, IntConsumer removedIndices) {
+        List<Node> kept = new ArrayList<>(size(root));
+        List<File> removed = new ArrayList<>();
+        int index = 0;
+        for (Node node : inOrder()) {
+            if (filter.test(node.file)) {
+                removedIndices.accept(index++);
+                removed.add(node.file);
+                byPath.remove(node.path);
+                byId.remove(node.id);
+            } else {
+                kept.add(node);
+                index++;
+            }
+        }
+        if (!removed.isEmpty()) {
+            root = build(kept);
+            version++;
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        root = null;
+        byPath.clear();
+        byId.clear();
+        version++;
+    }
+
+    public synchronized List<File> snapshot() {
+        if (snapshotVersion != version) {
+            List<File> files = new ArrayList<>(size(root));
+            for (Node node : inOrder()) {
+                files.add(node.file);
+            }
+            snapshot = Collections.unmodifiableList(files);
+            snapshotVersion = version;
+        }
+        return snapshot;
+    }
+
+    public List<File> asList() {
+        return view;
+    }
+
+    private Node newNode(File song) {
+        return new Node(song, song.getAbsolutePath(), nextId++, ThreadLocalRandom.current().nextInt());
+    }
+
+    private void unlink(int index) {
+        Node[] left = split(root, index);
+        Node[] right = split(left[1], 1);
+        Node removed = right[0];
+        byPath.remove(removed.path);
+        byId.remove(removed.id);
+        root = merge(left[0], right[1]);
+        if (root != null) {
+            root.parent = null;
+        }
+        version++;
+    }
+
+    private Node nodeAt(int index) {
+        if (index < 0 || index >= size(root)) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size(root));
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private static int indexOf(Node node) {
+        int index = size(node.left);
+        while (node.parent != null) {
+            if (node == node.parent.right) {
+                index += size(node.parent.left) + 1;
+            }
+            node = node.parent;
+        }
+        return index;
+    }
+
+    private List<Node> inOrder() {
+        List<Node> nodes = new ArrayList<>(size(root));
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            nodes.add(node);
+            node = node.right;
+        }
+        return nodes;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null) {
+            node.left.parent = node;
+        }
+        if (node.right != null) {
+            node.right.parent = node;
+        }
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node[] split(Node node, int count) {
+        if (node == null) {
+            return new Node[2];
+        }
+        Node[] parts;
+        if (size(node.left) >= count) {
+            parts = split(node.left, count);
+            node.left = parts[1];
+            update(node);
+            parts[1] = node;
+        } else {
+            parts = split(node.right, count - size(node.left) - 1);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+        }
+        if (parts[0] != null) {
+            parts[0].parent = null;
+        }
+        if (parts[1] != null) {
+            parts[1].parent = null;
+        }
+        return parts;
+    }
+
+    private static Node build(List<Node> nodes) {
+        Deque<Node> spine = new ArrayDeque<>();
+        for (Node node : nodes) {
+            node.left = null;
+            node.right = null;
+            node.parent = null;
+            Node lastPopped = null;
+            while (!spine.isEmpty() && spine.peek().priority < node.priority) {
+                lastPopped = spine.pop();
+            }
+            node.left = lastPopped;
+            if (!spine.isEmpty()) {
+                spine.peek().right = node;
+            }
+            spine.push(node);
+        }
+        Node top = spine.peekLast();
+        if (top != null) {
+            recomputeSizes(top);
+        }
+        return top;
+    }
+
+    private static void recomputeSizes(Node top) {
+        Deque<Node> stack = new ArrayDeque<>();
+        List<Node> postOrder = new ArrayList<>();
+        stack.push(top);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            postOrder.add(node);
+            if (node.left != null) {
+                stack.push(node.left);
+            }
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+        }
+        for (int i = postOrder.size() - 1; i >= 0; i--) {
+            update(postOrder.get(i));
+        }
+    }
+}
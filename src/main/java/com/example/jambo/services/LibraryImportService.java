@@ -0,0 +1,244 @@
+package com.example.jambo.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LibraryImportService {
+    private static final Logger logger = LoggerFactory.getLogger(LibraryImportService.class);
+
+    private final MetadataExtractionService extractionService;
+    private final AudioFormatRegistry formatRegistry;
+    private final int queueCapacity;
+    private final long batchIntervalMillis;
+    private final int maxBatchSize;
+
+    public record ImportedTrack(File file, String formattedInfo) {
+    }
+
+    /**
+     * @param skipped files that were walked but rejected as unreadable or not playable
+     */
+    public record ImportProgress(int discovered, int processed, int skipped, double filesPerSecond, boolean done) {
+    }
+
+    public interface ImportListener {
+        void onBatch(List<ImportedTrack> batch);
+
+        void onProgress(ImportProgress progress);
+    }
+
+    public LibraryImportService(MetadataExtractionService extractionService, int queueCapacity,
+                                long batchIntervalMillis, int maxBatchSize) {
+        this(extractionService, new AudioFormatRegistry(), queueCapacity, batchIntervalMillis, maxBatchSize);
+    }
+
+    public LibraryImportService(MetadataExtractionService extractionService, AudioFormatRegistry formatRegistry,
+                                int queueCapacity, long batchIntervalMillis, int maxBatchSize) {
+        this.extractionService = extractionService;
+        this.formatRegistry = formatRegistry;
+        this.queueCapacity = queueCapacity;
+        this.batchIntervalMillis = batchIntervalMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public CompletableFuture<ImportProgress> importDirectory(Path root, Set<String> knownPaths,
+                                                             Executor uiExecutor, ImportListener listener) {
+        ImportRun run = new ImportRun(root, knownPaths, uiExecutor, listener);
+        run.start();
+        return run.result;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // A directory sorts as if followed by its separator, so depth-first order matches sorting full paths.
+    private record WalkEntry(Path path, boolean directory, String sortKey) {
+        static WalkEntry of(Path path) {
+            boolean directory = Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+            String name = path.getFileName().toString();
+            return new WalkEntry(path, directory, directory ? name + File.separator : name);
+        }
+    }
+
+    private static final class Slot {
+        private volatile ImportedTrack track;
+        private volatile boolean complete;
+    }
+
+    private class ImportRun {
+        private final Path root;
+        private final Set<String> knownPaths;
+        private final Executor uiExecutor;
+        private final ImportListener listener;
+        private final CompletableFuture<ImportProgress> result = new CompletableFuture<>();
+
+        private final Semaphore inFlight = new Semaphore(queueCapacity);
+        // One slot per submitted file in walk order; batches are cut from the completed head.
+        private final ConcurrentLinkedQueue<Slot> slots = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger discovered = new AtomicInteger();
+        private final AtomicInteger processed = new AtomicInteger();
+        private final Map<String, Integer> skipped = new ConcurrentHashMap<>();
+        private final AtomicBoolean deliveryPending = new AtomicBoolean(false);
+        private volatile boolean walkFinished = false;
+        private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(daemonThreads("jambo-import-dispatch"));
+        private long startNanos;
+
+        ImportRun(Path root, Set<String> knownPaths, Executor uiExecutor, ImportListener listener) {
+            this.root = root;
+            this.knownPaths = knownPaths;
+            this.uiExecutor = uiExecutor;
+            this.listener = listener;
+        }
+
+        void start() {
+            startNanos = System.nanoTime();
+            Thread walker = daemonThreads("jambo-import-walker").newThread(this::walk);
+            walker.start();
+            dispatcher.scheduleWithFixedDelay(this::dispatch, batchIntervalMillis, batchIntervalMillis, TimeUnit.MILLISECONDS);
+            logger.info("Started import of {}", root);
+        }
+
+        private void walk() {
+            try {
+                walk(root);
+            } finally {
+                walkFinished = true;
+            }
+        }
+
+        // Entries are visited in absolute path order, the order the whole import is delivered in.
+        private void walk(Path directory) {
+            List<WalkEntry> entries = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                stream.forEach(path -> entries.add(WalkEntry.of(path)));
+            } catch (IOException e) {
+                logger.error("Error scanning directory: {}", directory, e);
+                return;
+            }
+            entries.sort(Comparator.comparing(WalkEntry::sortKey));
+            for (WalkEntry entry : entries) {
+                if (entry.directory()) {
+                    walk(entry.path());
+                } else if (Files.isRegularFile(entry.path())
+                        && !knownPaths.contains(entry.path().toFile().getAbsolutePath())) {
+                    submit(entry.path().toFile());
+                }
+            }
+        }
+
+        private void submit(File file) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Import interrupted", e);
+            }
+            discovered.incrementAndGet();
+            Slot slot = new Slot();
+            slots.add(slot);
+            extractionService.submit(file, MetadataExtractionService.Priority.BACKGROUND, this::inspect)
+                    .whenComplete((formattedInfo, error) -> {
+                        if (error != null) {
+                            logger.warn("Failed to format metadata for {}, using filename", file.getName());
+                        }
+                        if (error != null || formattedInfo != null) {
+                            slot.track = new ImportedTrack(file, formattedInfo != null ? formattedInfo : file.getName());
+                        }
+                        slot.complete = true;
+                        processed.incrementAndGet();
+                        inFlight.release();
+                    });
+        }
+
+        // Sniffing runs on the extraction pool, so rejected files never reach the tag parser.
+        private String inspect(File file) throws Exception {
+            AudioFormatRegistry.AudioFormat format;
+            try {
+                format = formatRegistry.detect(file);
+            } catch (IOException e) {
+                skipped.merge("unreadable", 1, Integer::sum);
+                return null;
+            }
+            if (format == null || !format.playable()) {
+                skipped.merge(format == null ? "unrecognised" : format.name(), 1, Integer::sum);
+                return null;
+            }
+            return extractionService.formatSongMetadata(file);
+        }
+
+        private void dispatch() {
+            if (!deliveryPending.compareAndSet(false, true)) {
+                return;
+            }
+            boolean extractionFinished = walkFinished && processed.get() == discovered.get();
+            List<ImportedTrack> batch = new ArrayList<>();
+            Slot slot;
+            while (batch.size() < maxBatchSize && (slot = slots.peek()) != null && slot.complete) {
+                slots.poll();
+                if (slot.track != null) {
+                    batch.add(slot.track);
+                }
+            }
+            boolean done = extractionFinished && slots.isEmpty();
+            ImportProgress progress = progress(done);
+
+            uiExecutor.execute(() -> {
+                try {
+                    if (!batch.isEmpty()) {
+                        listener.onBatch(batch);
+                    }
+                    listener.onProgress(progress);
+                } catch (Exception e) {
+                    logger.error("Failed to apply import batch: {}", e.getMessage(), e);
+                } finally {
+                    deliveryPending.set(false);
+                    if (done) {
+                        result.complete(progress);
+                    }
+                }
+            });
+
+            if (done) {
+                dispatcher.shutdown();
+                MetadataExtractionService.Stats stats = extractionService.getStats();
+                logger.info("Imported {} files from {} in {} ms ({} files/s, avg queue {} ms, avg extract {} ms)",
+                        progress.processed(), root, (System.nanoTime() - startNanos) / 1_000_000,
+                        String.format("%.1f", progress.filesPerSecond()),
+                        String.format("%.2f", stats.averageQueueMillis()),
+                        String.format("%.2f", stats.averageExtractMillis()));
+                if (!skipped.isEmpty()) {
+                    logger.info("Skipped {} files that are not playable: {}", progress.skipped(), skipped);
+                }
+            }
+        }
+
+        private ImportProgress progress(boolean done) {
+            double elapsedSeconds = Math.max((System.nanoTime() - startNanos) / 1e9, 1e-3);
+            int processedCount = processed.get();
+            int skippedCount = skipped.values().stream().mapToInt(Integer::intValue).sum();
+            return new ImportProgress(discovered.get(), processedCount, skippedCount, processedCount / elapsedSeconds,
+                    done);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.jambo.services;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+public class LibraryWatchService {
+    private static final Logger logger = LoggerFactory.getLogger(LibraryWatchService.class);
+    public static final String DEFAULT_ROOTS_FILE = "library_roots.json";
+
+    private final Path rootsFile;
+    private final long quietPeriodMillis;
+    private final AudioFormatRegistry formatRegistry;
+    private final Map<String, String> roots = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final Map<Path, ChangeType> pendingChanges = new LinkedHashMap<>();
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jambo-library-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile WatchService watchService;
+    private LibraryChangeListener listener;
+    private long lastEventNanos;
+    private boolean flushScheduled = false;
+
+    private enum ChangeType { CREATED, MODIFIED, DELETED }
+
+    private record WatchedRoot(String path, String playlist) {
+    }
+
+    public record LibraryChange(String playlistName, List<File> created, List<File> modified, List<File> deleted) {
+        public boolean isDeleted(File song) {
+            String path = song.getAbsolutePath();
+            for (File removed : deleted) {
+                String removedPath = removed.getAbsolutePath();
+                if (path.equals(removedPath) || path.startsWith(removedPath + File.separator)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public interface LibraryChangeListener {
+        void onLibraryChanged(LibraryChange change);
+    }
+
+    public LibraryWatchService(Path rootsFile, long quietPeriodMillis) {
+        this(rootsFile, quietPeriodMillis, new AudioFormatRegistry());
+    }
+
+    public LibraryWatchService(Path rootsFile, long quietPeriodMillis, AudioFormatRegistry formatRegistry) {
+        this.rootsFile = rootsFile;
+        this.quietPeriodMillis = quietPeriodMillis;
+        this.formatRegistry = formatRegistry;
+    }
+
+    public synchronized void start(LibraryChangeListener listener) {
+        if (watchService != null) {
+            return;
+        }
+        this.listener = listener;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            logger.error("Library watching unavailable: {}", e.getMessage());
+            return;
+        }
+        loadRoots();
+        roots.keySet().forEach(root -> registerRecursively(Path.of(root)));
+
+        Thread watcher = new Thread(this::processEvents, "jambo-library-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        logger.info("Watching {} library roots", roots.size());
+    }
+
+    /**
+     * Saving the roots and registering the tree happen on the flush thread, since callers are
+     * usually on the FX thread and a library tree can hold thousands of directories.
+     */
+    public void addRoot(Path root, String playlistName) {
+        String key = root.toAbsolutePath().normalize().toString();
+        if (playlistName.equals(roots.put(key, playlistName))) {
+            return;
+        }
+        flushScheduler.execute(() -> {
+            saveRoots();
+            if (watchService != null) {
+                registerRecursively(Path.of(key));
+            }
+        });
+    }
+
+    public void removeRootsForPlaylist(String playlistName) {
+        if (roots.values().removeIf(playlistName::equals)) {
+            flushScheduler.execute(this::saveRoots);
+        }
+    }
+
+    /**
+     * Stops watching and drops changes still inside their quiet period; a roots save that had not run yet is done here.
+     */
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close library watcher: {}", e.getMessage());
+            }
+        }
+        if (!flushScheduler.shutdownNow().isEmpty()) {
+            saveRoots();
+        }
+    }
+
+    private void registerRecursively(Path root) {
+        if (!Files.isDirectory(root)) {
+            logger.warn("Library root {} is no longer a directory", root);
+            return;
+        }
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    watchedDirectories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    logger.warn("Cannot watch {}: {}", file, exc.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Failed to watch library root {}: {}", root, e.getMessage());
+        }
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = watchedDirectories.get(key);
+            if (directory != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    handleEvent(directory, event);
+                }
+            }
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+            }
+        }
+    }
+
+    private void handleEvent(Path directory, WatchEvent<?> event) {
+        if (event.kind() == OVERFLOW) {
+            logger.warn("Watch events overflowed for {}, rescanning", directory);
+            recordExistingFiles(directory);
+            return;
+        }
+        Path path = directory.resolve((Path) event.context());
+        if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+            registerRecursively(path);
+            recordExistingFiles(path);
+            return;
+        }
+        if (event.kind() == ENTRY_DELETE) {
+            record(path, ChangeType.DELETED);
+            return;
+        }
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        if (event.kind() == ENTRY_CREATE) {
+            record(path, ChangeType.CREATED);
+        } else if (event.kind() == ENTRY_MODIFY) {
+            record(path, ChangeType.MODIFIED);
+        }
+    }
+
+    private void recordExistingFiles(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.filter(Files::isRegularFile).forEach(path -> record(path, ChangeType.CREATED));
+        } catch (IOException e) {
+            logger.error("Failed to rescan {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private synchronized void record(Path path, ChangeType type) {
+        if (flushScheduler.isShutdown()) {
+            return;
+        }
+        ChangeType previous = pendingChanges.get(path);
+        if (previous == ChangeType.CREATED && type == ChangeType.DELETED) {
+            pendingChanges.remove(path);
+        } else if (previous == ChangeType.CREATED && type == ChangeType.MODIFIED) {
+            pendingChanges.put(path, ChangeType.CREATED);
+        } else if (previous == ChangeType.DELETED && type == ChangeType.CREATED) {
+            pendingChanges.put(path, ChangeType.MODIFIED);
+        } else {
+            pendingChanges.put(path, type);
+        }
+        lastEventNanos = System.nanoTime();
+        if (!flushScheduled) {
+            flushScheduled = true;
+            flushScheduler.schedule(this::flush, quietPeriodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        Map<Path, ChangeType> changes;
+        synchronized (this) {
+            long quietFor = (System.nanoTime() - lastEventNanos) / 1_000_000;
+            if (quietFor < quietPeriodMillis) {
+                flushScheduler.schedule(this::flush, quietPeriodMillis - quietFor, TimeUnit.MILLISECONDS);
+                return;
+            }
+            changes = new LinkedHashMap<>(pendingChanges);
+            pendingChanges.clear();
+            flushScheduled = false;
+        }
+
+        Map<String, LibraryChange> byPlaylist = new LinkedHashMap<>();
+        for (Map.Entry<Path, ChangeType> entry : changes.entrySet()) {
+            String playlist = playlistFor(entry.getKey());
+            if (playlist == null) {
+                continue;
+            }
+            LibraryChange change = byPlaylist.computeIfAbsent(playlist,
+                    name -> new LibraryChange(name, new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
+            File file = entry.getKey().toFile();
+            // Sniffed only after the quiet period, once the file has been written completely.
+            if (entry.getValue() != ChangeType.DELETED && !formatRegistry.isPlayable(file)) {
+                continue;
+            }
+            switch (entry.getValue()) {
+                case CREATED -> change.created().add(file);
+                case MODIFIED -> change.modified().add(file);
+                case DELETED -> change.deleted().add(file);
+            }
+        }
+
+        for (LibraryChange change : byPlaylist.values()) {
+            logger.info("Library change for playlist '{}': {} created, {} modified, {} deleted", change.playlistName(),
+                    change.created().size(), change.modified().size(), change.deleted().size());
+            try {
+                listener.onLibraryChanged(change);
+            } catch (Exception e) {
+                logger.error("Failed to apply library change: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private String playlistFor(Path path) {
+        String best = null;
+        int bestLength = -1;
+        for (Map.Entry<String, String> root : roots.entrySet()) {
+            if (path.startsWith(root.getKey()) && root.getKey().length() > bestLength) {
+                best = root.getValue();
+                bestLength = root.getKey().length();
+            }
+        }
+        return best;
+    }
+
+    private void loadRoots() {
+        if (!Files.exists(rootsFile)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(rootsFile)) {
+            Type listType = new TypeToken<ArrayList<WatchedRoot>>(){}.getType();
+            List<WatchedRoot> saved = new Gson().fromJson(reader, listType);
+            if (saved != null) {
+                saved.forEach(root -> roots.put(root.path(), root.playlist()));
+            }
+        } catch (Exception e) {
+            logger.error("Failed to load library roots from {}: {}", rootsFile, e.getMessage());
+        }
+    }
+
+    private synchronized void saveRoots() {
+        List<WatchedRoot> saved = roots.entrySet().stream()
+                .map(entry -> new WatchedRoot(entry.getKey(), entry.getValue()))
+                .toList();
+        try (Writer writer = Files.newBufferedWriter(rootsFile)) {
+            new Gson().toJson(saved, writer);
+        } catch (IOException e) {
+            logger.error("Failed to save library roots to {}: {}", rootsFile, e.getMessage());
+        }
+    }
+}
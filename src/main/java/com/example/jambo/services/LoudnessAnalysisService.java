@@ -0,0 +1,358 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.PlaylistInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures playlist MP3s in the background for a ReplayGain style gain towards {@value #REFERENCE_LUFS} LUFS.
+ */
+public class LoudnessAnalysisService implements PlaylistInterface.PlaylistContentListener {
+    private static final Logger logger = LoggerFactory.getLogger(LoudnessAnalysisService.class);
+    public static final String DEFAULT_CACHE_FILE = "loudness_cache.bin";
+    public static final double REFERENCE_LUFS = -18.0;
+    private static final int MAGIC = 0x4A4C4E31;
+    private static final int FORMAT_VERSION = 1;
+    private static final int COMPACTION_SLACK = 256;
+
+    public enum Mode { TRACK, ALBUM, OFF }
+
+    public record Analysis(double integratedLufs, double samplePeak) {
+        public boolean measured() {
+            return Double.isFinite(integratedLufs);
+        }
+    }
+
+    public record Progress(int analysed, int unmeasured, int pending) {
+    }
+
+    private record Entry(long size, long lastModified, Analysis analysis, int[] histogram) {
+    }
+
+    private final Mp3Decoder decoder;
+    private final Mode mode;
+    private final double preampDb;
+    private final Path cacheFile;
+    private final MetricsRegistry.Timer analyzeTimer;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> albums = new ConcurrentHashMap<>();
+    private final Map<String, Double> albumLoudness = new ConcurrentHashMap<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private DataOutputStream log;
+    private int logRecords = 0;
+
+    public LoudnessAnalysisService(Mp3Decoder decoder, Mode mode, double preampDb, int threads, MetricsRegistry metrics) {
+        this(decoder, mode, preampDb, threads, metrics, Path.of(DEFAULT_CACHE_FILE));
+    }
+
+    public LoudnessAnalysisService(Mp3Decoder decoder, Mode mode, double preampDb, int threads, MetricsRegistry metrics,
+                                   Path cacheFile) {
+        this.decoder = decoder;
+        this.mode = mode;
+        this.preampDb = preampDb;
+        this.cacheFile = cacheFile;
+        this.analyzeTimer = metrics.timer("loudness.analyze");
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "jambo-loudness-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        metrics.gauge("loudness.pending", queued::size);
+        load();
+    }
+
+    @Override
+    public void onSongsAdded(String playlistName, List<File> songs) {
+        if (mode != Mode.OFF) {
+            analyse(songs);
+        }
+    }
+
+    @Override
+    public void onSongsRemoved(String playlistName, List<File> songs) {
+        // Measurements stay valid for as long as the file is unchanged, so they are kept.
+    }
+
+    // Playlist listeners run under the playlist lock, so the file system is only touched by the workers.
+    public void analyse(Collection<File> files) {
+        if (workers.isShutdown()) {
+            return;
+        }
+        for (File file : files) {
+            String path = file.getAbsolutePath();
+            if (queued.add(path)) {
+                workers.execute(() -> analyseQueued(file, path));
+            }
+        }
+    }
+
+    public Analysis getAnalysis(File file) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        return entry != null ? entry.analysis() : null;
+    }
+
+    // 0 until the file is measured; album gain falls back to track gain.
+    public double getGainDb(File file) {
+        if (mode == Mode.OFF) {
+            return 0;
+        }
+        String path = file.getAbsolutePath();
+        Entry entry = entries.get(path);
+        if (entry == null || !entry.analysis().measured()) {
+            return 0;
+        }
+        double lufs = entry.analysis().integratedLufs();
+        if (mode == Mode.ALBUM) {
+            double album = albumLoudness.computeIfAbsent(albumKey(path), this::measureAlbum);
+            if (Double.isFinite(album)) {
+                lufs = album;
+            }
+        }
+        return REFERENCE_LUFS - lufs + preampDb;
+    }
+
+    public Progress getProgress() {
+        int analysed = 0;
+        int unmeasured = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.analysis().measured()) {
+                analysed++;
+            } else {
+                unmeasured++;
+            }
+        }
+        return new Progress(analysed, unmeasured, queued.size());
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+        try {
+            if (!workers.awaitTermination(2, TimeUnit.SECONDS)) {
+                logger.warn("Loudness analysis did not stop within 2 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            closeLog();
+        }
+    }
+
+    private void analyseQueued(File file, String path) {
+        try {
+            long size = file.length();
+            long lastModified = file.lastModified();
+            Entry entry = entries.get(path);
+            if (lastModified == 0 || entry != null && entry.size() == size && entry.lastModified() == lastModified) {
+                return;
+            }
+            if (!decoder.canDecode(file)) {
+                entry = new Entry(size, lastModified, new Analysis(Double.NaN, 0), new int[0]);
+            } else {
+                entry = measure(file, size, lastModified);
+                if (entry == null) {
+                    return;
+                }
+            }
+            store(path, entry);
+        } finally {
+            queued.remove(path);
+        }
+    }
+
+    private Entry measure(File file, long size, long lastModified) {
+        LoudnessMeter meter = new LoudnessMeter();
+        long startNanos = System.nanoTime();
+        try {
+            decoder.decode(file, meter::accept);
+        } catch (InterruptedIOException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Could not measure loudness of {}: {}", file, e.getMessage());
+            return new Entry(size, lastModified, new Analysis(Double.NaN, 0), new int[0]);
+        } finally {
+            analyzeTimer.record(System.nanoTime() - startNanos);
+        }
+        double lufs = meter.integratedLoudness();
+        Analysis analysis = new Analysis(Double.isFinite(lufs) ? lufs : Double.NaN, meter.samplePeak());
+        logger.debug("Measured {}: {} LUFS, peak {}", file.getName(), String.format("%.2f", lufs),
+                String.format("%.3f", analysis.samplePeak()));
+        return new Entry(size, lastModified, analysis, meter.histogram());
+    }
+
+    private double measureAlbum(String album) {
+        int[] merged = new int[LoudnessMeter.HISTOGRAM_BINS];
+        for (String path : albums.getOrDefault(album, Set.of())) {
+            Entry entry = entries.get(path);
+            if (entry == null) {
+                continue;
+            }
+            int[] histogram = entry.histogram();
+            for (int bin = 0; bin < histogram.length; bin++) {
+                merged[bin] += histogram[bin];
+            }
+        }
+        return LoudnessMeter.integratedLoudness(merged);
+    }
+
+    // Tracks are grouped into albums by the directory they live in.
+    private static String albumKey(String path) {
+        String parent = new File(path).getParent();
+        return parent != null ? parent : "";
+    }
+
+    private void put(String path, Entry entry) {
+        entries.put(path, entry);
+        String album = albumKey(path);
+        albums.computeIfAbsent(album, key -> ConcurrentHashMap.newKeySet()).add(path);
+        albumLoudness.remove(album);
+    }
+
+    private synchronized void store(String path, Entry entry) {
+        put(path, entry);
+        try {
+            if (log == null) {
+                log = openLog();
+            }
+            writeRecord(log, path, entry);
+            log.flush();
+            logRecords++;
+        } catch (IOException e) {
+            logger.error("Failed to append to loudness cache {}: {}", cacheFile, e.getMessage());
+            closeLog();
+        }
+    }
+
+    private void load() {
+        boolean truncated = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.warn("Ignoring loudness cache {} with unknown format", cacheFile);
+                truncated = true;
+            } else {
+                while (true) {
+                    String path;
+                    try {
+                        path = in.readUTF();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    put(path, readEntry(in));
+                    logRecords++;
+                }
+            }
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            logger.info("No loudness cache found at {}, starting empty", cacheFile);
+            return;
+        } catch (EOFException e) {
+            logger.warn("Loudness cache {} ends with a partial record, dropping it", cacheFile);
+            truncated = true;
+        } catch (IOException e) {
+            logger.error("Failed to load loudness cache {}: {}", cacheFile, e.getMessage());
+            truncated = true;
+        }
+        logger.info("Loaded {} loudness measurements from {}", entries.size(), cacheFile);
+        if (truncated || logRecords > entries.size() + COMPACTION_SLACK) {
+            compact();
+        }
+    }
+
+    private synchronized void compact() {
+        Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            for (Map.Entry<String, Entry> e : snapshot) {
+                writeRecord(out, e.getKey(), e.getValue());
+            }
+        } catch (IOException e) {
+            logger.error("Failed to write loudness cache {}: {}", tempFile, e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Compacted loudness cache {} from {} to {} records", cacheFile, logRecords, snapshot.size());
+            logRecords = snapshot.size();
+        } catch (IOException e) {
+            logger.error("Failed to replace loudness cache {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    private DataOutputStream openLog() throws IOException {
+        boolean fresh = !Files.exists(cacheFile) || Files.size(cacheFile) == 0;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(cacheFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+        if (fresh) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+        }
+        return out;
+    }
+
+    private void closeLog() {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            logger.error("Failed to close loudness cache {}: {}", cacheFile, e.getMessage());
+        }
+        log = null;
+    }
+
+    // Histograms are stored sparsely as (bin, count) pairs; most tracks only touch a few dozen bins.
+    private static void writeRecord(DataOutputStream out, String path, Entry entry) throws IOException {
+        out.writeUTF(path);
+        out.writeLong(entry.size());
+        out.writeLong(entry.lastModified());
+        out.writeDouble(entry.analysis().integratedLufs());
+        out.writeFloat((float) entry.analysis().samplePeak());
+        int[] histogram = entry.histogram();
+        int used = 0;
+        for (int count : histogram) {
+            if (count > 0) {
+                used++;
+            }
+        }
+        out.writeShort(used);
+        for (int bin = 0; bin < histogram.length; bin++) {
+            if (histogram[bin] > 0) {
+                out.writeByte(bin);
+                out.writeInt(histogram[bin]);
+            }
+        }
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        Analysis analysis = new Analysis(in.readDouble(), in.readFloat());
+        int used = in.readUnsignedShort();
+        int[] histogram = new int[used > 0 ? LoudnessMeter.HISTOGRAM_BINS : 0];
+        for (int i = 0; i < used; i++) {
+            int bin = in.readUnsignedByte();
+            int count = in.readInt();
+            if (bin < histogram.length) {
+                histogram[bin] = count;
+            }
+        }
+        return new Entry(size, lastModified, analysis, histogram);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.jambo.services;
+
+import java.util.Arrays;
+
+/**
+ * Gated integrated loudness per ITU-R BS.1770, with a block histogram for combining album measurements.
+ */
+public class LoudnessMeter {
+    public static final double ABSOLUTE_GATE_LUFS = -70.0;
+    public static final double RELATIVE_GATE_LU = -10.0;
+    public static final double HISTOGRAM_BIN_LU = 0.5;
+    public static final int HISTOGRAM_BINS = 150;
+    private static final int SEGMENTS_PER_BLOCK = 4;
+
+    private int sampleRate;
+    private int channels;
+    private double[][] filterState;
+    private double[] shelfB, shelfA, highPassB, highPassA;
+    private int segmentLength;
+    private int segmentFill;
+    private double segmentEnergy;
+    private final double[] recentSegments = new double[SEGMENTS_PER_BLOCK];
+    private long segmentCount;
+    private double[] blockEnergies = new double[256];
+    private int blockCount;
+    private int peak;
+
+    public void accept(short[] samples, int length, int channels, int sampleRate) {
+        if (channels != this.channels || sampleRate != this.sampleRate) {
+            configure(channels, sampleRate);
+        }
+        for (int i = 0; i + channels <= length; i += channels) {
+            double energy = 0;
+            for (int c = 0; c < channels; c++) {
+                int sample = samples[i + c];
+                peak = Math.max(peak, Math.abs(sample));
+                double weighted = kWeight(filterState[c], sample / 32768.0);
+                energy += weighted * weighted;
+            }
+            segmentEnergy += energy;
+            if (++segmentFill == segmentLength) {
+                completeSegment();
+            }
+        }
+    }
+
+    public double integratedLoudness() {
+        double ungated = 0;
+        int ungatedCount = 0;
+        for (int i = 0; i < blockCount; i++) {
+            if (loudness(blockEnergies[i]) > ABSOLUTE_GATE_LUFS) {
+                ungated += blockEnergies[i];
+                ungatedCount++;
+            }
+        }
+        if (ungatedCount == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double threshold = loudness(ungated / ungatedCount) + RELATIVE_GATE_LU;
+        double gated = 0;
+        int gatedCount = 0;
+        for (int i = 0; i < blockCount; i++) {
+            double blockLoudness = loudness(blockEnergies[i]);
+            if (blockLoudness > ABSOLUTE_GATE_LUFS && blockLoudness > threshold) {
+                gated += blockEnergies[i];
+                gatedCount++;
+            }
+        }
+        return loudness(gated / gatedCount);
+    }
+
+    public double samplePeak() {
+        return peak / 32768.0;
+    }
+
+    public int[] histogram() {
+        int[] histogram = new int[HISTOGRAM_BINS];
+        for (int i = 0; i < blockCount; i++) {
+            double blockLoudness = loudness(blockEnergies[i]);
+            if (blockLoudness > ABSOLUTE_GATE_LUFS) {
+                int bin = (int) ((blockLoudness - ABSOLUTE_GATE_LUFS) / HISTOGRAM_BIN_LU);
+                histogram[Math.min(bin, HISTOGRAM_BINS - 1)]++;
+            }
+        }
+        return histogram;
+    }
+
+    // Each block is approximated by its bin centre.
+    public static double integratedLoudness(int[] histogram) {
+        double ungated = 0;
+        long ungatedCount = 0;
+        for (int bin = 0; bin < histogram.length; bin++) {
+            ungated += histogram[bin] * binEnergy(bin);
+            ungatedCount += histogram[bin];
+        }
+        if (ungatedCount == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double threshold = loudness(ungated / ungatedCount) + RELATIVE_GATE_LU;
+        double gated = 0;
+        long gatedCount = 0;
+        for (int bin = 0; bin < histogram.length; bin++) {
+            if (binLoudness(bin) > threshold) {
+                gated += histogram[bin] * binEnergy(bin);
+                gatedCount += histogram[bin];
+            }
+        }
+        return gatedCount == 0 ? Double.NEGATIVE_INFINITY : loudness(gated / gatedCount);
+    }
+
+    private static double binLoudness(int bin) {
+        return ABSOLUTE_GATE_LUFS + (bin + 0.5) * HISTOGRAM_BIN_LU;
+    }
+
+    private static double binEnergy(int bin) {
+        return Math.pow(10, (binLoudness(bin) + 0.691) / 10);
+    }
+
+    private static double loudness(double energy) {
+        return -0.691 + 10 * Math.log10(energy);
+    }
+
+    private void completeSegment() {
+        recentSegments[(int) (segmentCount % SEGMENTS_PER_BLOCK)] = segmentEnergy / segmentLength;
+        segmentCount++;
+        segmentEnergy = 0;
+        segmentFill = 0;
+        if (segmentCount >= SEGMENTS_PER_BLOCK) {
+            if (blockCount == blockEnergies.length) {
+                blockEnergies = Arrays.copyOf(blockEnergies, blockCount * 2);
+            }
+            double sum = 0;
+            for (double segment : recentSegments) {
+                sum += segment;
+            }
+            blockEnergies[blockCount++] = sum / SEGMENTS_PER_BLOCK;
+        }
+    }
+
+    private double kWeight(double[] state, double input) {
+        double shelved = shelfB[0] * input + shelfB[1] * state[0] + shelfB[2] * state[1]
+                - shelfA[1] * state[2] - shelfA[2] * state[3];
+        state[1] = state[0];
+        state[0] = input;
+        state[3] = state[2];
+        state[2] = shelved;
+        double output = highPassB[0] * shelved + highPassB[1] * state[4] + highPassB[2] * state[5]
+                - highPassA[1] * state[6] - highPassA[2] * state[7];
+        state[5] = state[4];
+        state[4] = shelved;
+        state[7] = state[6];
+        state[6] = output;
+        return output;
+    }
+
+    // Filter coefficients for arbitrary sample rates, derived from the 48 kHz values in BS.1770.
+    private void configure(int channels, int sampleRate) {
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.filterState = new double[channels][8];
+        this.segmentLength = Math.max(1, sampleRate / 10);
+        this.segmentFill = 0;
+        this.segmentEnergy = 0;
+
+        double k = Math.tan(Math.PI * 1681.974450955533 / sampleRate);
+        double q = 0.7071752369554196;
+        double vh = Math.pow(10, 3.999843853973347 / 20);
+        double vb = Math.pow(vh, 0.4996667741545416);
+        double a0 = 1 + k / q + k * k;
+        shelfB = new double[]{(vh + vb * k / q + k * k) / a0, 2 * (k * k - vh) / a0, (vh - vb * k / q + k * k) / a0};
+        shelfA = new double[]{1, 2 * (k * k - 1) / a0, (1 - k / q + k * k) / a0};
+
+        k = Math.tan(Math.PI * 38.13547087602444 / sampleRate);
+        q = 0.5003270373238773;
+        a0 = 1 + k / q + k * k;
+        highPassB = new double[]{1, -2, 1};
+        highPassA = new double[]{1, 2 * (k * k - 1) / a0, (1 - k / q + k * k) / a0};
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MetadataCacheService {
+    private static final Logger logger = LoggerFactory.getLogger(MetadataCacheService.class);
+    public static final String DEFAULT_CACHE_FILE = "metadata_cache.bin";
+    private static final int MAGIC = 0x4A4D4331;
+    private static final int FORMAT_VERSION = 3;
+
+    private final Path cacheFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile boolean dirty = false;
+
+    public record Entry(long size, long lastModified, MetadataInterface.TrackInfo info) {
+    }
+
+    public MetadataCacheService() {
+        this(Path.of(DEFAULT_CACHE_FILE));
+    }
+
+    public MetadataCacheService(Path cacheFile) {
+        this.cacheFile = cacheFile;
+        load();
+    }
+
+    public Entry get(File file) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        if (entry != null && entry.size() == file.length() && entry.lastModified() == file.lastModified()) {
+            hits.incrementAndGet();
+            return entry;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public Entry put(File file, MetadataInterface.TrackInfo info) {
+        MetadataInterface.TrackInfo normalized = new MetadataInterface.TrackInfo(
+                nonNull(info.format()), nonNull(info.bitRate()), nonNull(info.sampleRate()),
+                nonNull(info.artist()), nonNull(info.album()), nonNull(info.title()),
+                info.durationSeconds(), info.artwork());
+        Entry entry = new Entry(file.length(), file.lastModified(), normalized);
+        entries.put(file.getAbsolutePath(), entry);
+        dirty = true;
+        return entry;
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    public void invalidate(File file) {
+        if (entries.remove(file.getAbsolutePath()) != null) {
+            dirty = true;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void load() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.warn("Ignoring metadata cache {} with unknown format", cacheFile);
+                return;
+            }
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUTF();
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = strings[in.readInt()];
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                int durationSeconds = in.readInt();
+                String format = strings[in.readInt()];
+                String bitRate = strings[in.readInt()];
+                String sampleRate = strings[in.readInt()];
+                String artist = strings[in.readInt()];
+                String album = strings[in.readInt()];
+                String title = strings[in.readInt()];
+                MetadataInterface.ArtworkRef artwork = null;
+                if (in.readBoolean()) {
+                    String artworkHash = strings[in.readInt()];
+                    artwork = new MetadataInterface.ArtworkRef(artworkHash.isEmpty() ? null : artworkHash,
+                            strings[in.readInt()], in.readInt());
+                }
+                entries.put(path, new Entry(size, lastModified, new MetadataInterface.TrackInfo(
+                        format, bitRate, sampleRate, artist, album, title, durationSeconds, artwork)));
+            }
+            logger.info("Loaded {} metadata cache entries from {}", entries.size(), cacheFile);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            logger.info("No metadata cache found at {}, starting empty", cacheFile);
+        } catch (EOFException e) {
+            logger.warn("Metadata cache {} is truncated, starting empty", cacheFile);
+            entries.clear();
+        } catch (Exception e) {
+            logger.error("Failed to load metadata cache {}: {}", cacheFile, e.toString());
+            entries.clear();
+        }
+    }
+
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+        for (Map.Entry<String, Entry> e : snapshot) {
+            MetadataInterface.TrackInfo m = e.getValue().info();
+            String artworkHash = m.artwork() != null ? nonNull(m.artwork().hash()) : "";
+            String artworkMime = m.artwork() != null ? nonNull(m.artwork().mimeType()) : "";
+            for (String s : new String[]{e.getKey(), m.format(), m.bitRate(), m.sampleRate(),
+                    m.artist(), m.album(), m.title(), artworkHash, artworkMime}) {
+                stringIndex.computeIfAbsent(s, key -> {
+                    strings.add(key);
+                    return strings.size() - 1;
+                });
+            }
+        }
+
+        Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(strings.size());
+            for (String s : strings) {
+                out.writeUTF(s);
+            }
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Entry> e : snapshot) {
+                Entry entry = e.getValue();
+                MetadataInterface.TrackInfo m = entry.info();
+                out.writeInt(stringIndex.get(e.getKey()));
+                out.writeLong(entry.size());
+                out.writeLong(entry.lastModified());
+                out.writeInt(m.durationSeconds());
+                out.writeInt(stringIndex.get(m.format()));
+                out.writeInt(stringIndex.get(m.bitRate()));
+                out.writeInt(stringIndex.get(m.sampleRate()));
+                out.writeInt(stringIndex.get(m.artist()));
+                out.writeInt(stringIndex.get(m.album()));
+                out.writeInt(stringIndex.get(m.title()));
+                out.writeBoolean(m.artwork() != null);
+                if (m.artwork() != null) {
+                    out.writeInt(stringIndex.get(nonNull(m.artwork().hash())));
+                    out.writeInt(stringIndex.get(nonNull(m.artwork().mimeType())));
+                    out.writeInt(m.artwork().length());
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to write metadata cache {}: {}", tempFile, e.getMessage());
+            dirty = true;
+            return;
+        }
+
+        try {
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Saved {} metadata cache entries to {} ({} hits, {} misses)",
+                    snapshot.size(), cacheFile, hits.get(), misses.get());
+        } catch (IOException e) {
+            logger.error("Failed to replace metadata cache {}: {}", cacheFile, e.getMessage());
+            dirty = true;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Runs metadata extraction on a bounded pool in priority order. Each storage device has its own ready queue
+ * and a job only reaches the pool once its device is below the per-device limit, so a busy device never
+ * parks pool threads or holds back work for other devices.
+ */
+public class MetadataExtractionService {
+    private static final Logger logger = LoggerFactory.getLogger(MetadataExtractionService.class);
+
+    private final MetadataInterface metadataService;
+    private final int perDeviceLimit;
+    private final ThreadPoolExecutor executor;
+    private final Function<Path, String> deviceResolver;
+    private final Map<String, DeviceQueue> devices = new HashMap<>();
+    private final Map<Path, String> deviceByDirectory = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder extractNanos = new LongAdder();
+
+    public enum Priority { VISIBLE, PREFETCH, BACKGROUND }
+
+    @FunctionalInterface
+    public interface ExtractionTask<T> {
+        T extract(File file) throws Exception;
+    }
+
+    public record Stats(int queueDepth, int activeTasks, long completed, long cancelled, long failed,
+                        double averageQueueMillis, double averageExtractMillis) {
+    }
+
+    public MetadataExtractionService(MetadataInterface metadataService, int maxConcurrency, int perDeviceLimit) {
+        this(metadataService, maxConcurrency, perDeviceLimit, MetadataExtractionService::fileStoreOf);
+    }
+
+    MetadataExtractionService(MetadataInterface metadataService, int maxConcurrency, int perDeviceLimit,
+                              Function<Path, String> deviceResolver) {
+        this.metadataService = metadataService;
+        this.deviceResolver = deviceResolver;
+        this.perDeviceLimit = Math.max(1, perDeviceLimit);
+        int threads = maxConcurrency > 0 ? maxConcurrency : Runtime.getRuntime().availableProcessors();
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), platformThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+        logger.info("Metadata extraction running on {} threads, {} per device", threads, this.perDeviceLimit);
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "jambo-metadata-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public CompletableFuture<String> submitFormat(File file, Priority priority) {
+        return submit(file, priority, this::formatOrFileName);
+    }
+
+    /**
+     * Formats metadata on the calling thread; meant for use inside an {@link ExtractionTask}.
+     */
+    public String formatOrFileName(File song) {
+        try {
+            return formatSongMetadata(song);
+        } catch (Exception e) {
+            logger.warn("Failed to format metadata for {}, using filename", song.getName());
+            return song.getName();
+        }
+    }
+
+    /**
+     * Like {@link #formatOrFileName}, but a failure fails the job and is counted in {@link Stats#failed()}.
+     */
+    public String formatSongMetadata(File song) throws Exception {
+        return metadataService.formatSongMetadata(song);
+    }
+
+    public CompletableFuture<MetadataInterface.TrackInfo> submitTrackInfo(File file, Priority priority) {
+        return submit(file, priority, metadataService::getTrackInfo);
+    }
+
+    public <T> CompletableFuture<T> submit(File file, Priority priority, ExtractionTask<T> task) {
+        ExtractionJob<T> job = new ExtractionJob<>(file, deviceOf(file), priority, task, sequence.incrementAndGet());
+        job.future.whenComplete((result, error) -> {
+            if (job.future.isCancelled()) {
+                cancelled.increment();
+                withdraw(job);
+            }
+        });
+        synchronized (devices) {
+            DeviceQueue device = devices.computeIfAbsent(job.device, key -> new DeviceQueue());
+            device.ready.add(job);
+            dispatch(device);
+        }
+        return job.future;
+    }
+
+    // Callers hold the devices lock.
+    private void dispatch(DeviceQueue device) {
+        while (device.running < perDeviceLimit && !device.ready.isEmpty()) {
+            ExtractionJob<?> job = device.ready.poll();
+            if (job.future.isDone()) {
+                continue;
+            }
+            device.running++;
+            try {
+                executor.execute(job);
+            } catch (RejectedExecutionException e) {
+                device.running--;
+                job.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void release(ExtractionJob<?> job) {
+        synchronized (devices) {
+            DeviceQueue device = devices.get(job.device);
+            device.running--;
+            dispatch(device);
+        }
+    }
+
+    // A cancelled job still waiting for its device is dropped; one already handed to the pool gives its slot back.
+    private void withdraw(ExtractionJob<?> job) {
+        synchronized (devices) {
+            if (devices.get(job.device).ready.remove(job)) {
+                return;
+            }
+        }
+        if (executor.remove(job)) {
+            release(job);
+        }
+    }
+
+    public Stats getStats() {
+        long done = completed.sum() + failed.sum();
+        int waiting;
+        synchronized (devices) {
+            waiting = devices.values().stream().mapToInt(device -> device.ready.size()).sum();
+        }
+        return new Stats(
+                waiting + executor.getQueue().size(),
+                executor.getActiveCount(),
+                completed.sum(),
+                cancelled.sum(),
+                failed.sum(),
+                done > 0 ? queueNanos.sum() / 1e6 / done : 0,
+                done > 0 ? extractNanos.sum() / 1e6 / done : 0);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        Stats stats = getStats();
+        logger.info("Metadata extraction stopped: {} completed, {} cancelled, {} failed, avg queue {} ms, avg extract {} ms",
+                stats.completed(), stats.cancelled(), stats.failed(),
+                String.format("%.2f", stats.averageQueueMillis()), String.format("%.2f", stats.averageExtractMillis()));
+    }
+
+    private String deviceOf(File file) {
+        Path directory = file.getAbsoluteFile().toPath().getParent();
+        return directory == null ? "" : deviceByDirectory.computeIfAbsent(directory, deviceResolver);
+    }
+
+    private static String fileStoreOf(Path directory) {
+        try {
+            FileStore store = Files.getFileStore(directory);
+            return store.name() + "|" + store.type();
+        } catch (IOException e) {
+            return directory.getRoot() != null ? directory.getRoot().toString() : "";
+        }
+    }
+
+    private static final class DeviceQueue {
+        private final PriorityQueue<ExtractionJob<?>> ready = new PriorityQueue<>();
+        private int running;
+    }
+
+    private final class ExtractionJob<T> implements Runnable, Comparable<ExtractionJob<?>> {
+        private final File file;
+        private final String device;
+        private final Priority priority;
+        private final ExtractionTask<T> task;
+        private final long order;
+        private final long submittedNanos = System.nanoTime();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        ExtractionJob(File file, String device, Priority priority, ExtractionTask<T> task, long order) {
+            this.file = file;
+            this.device = device;
+            this.priority = priority;
+            this.task = task;
+            this.order = order;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!future.isDone()) {
+                    extract();
+                }
+            } finally {
+                release(this);
+            }
+        }
+
+        private void extract() {
+            long startNanos = System.nanoTime();
+            queueNanos.add(startNanos - submittedNanos);
+            try {
+                future.complete(task.extract(file));
+                completed.increment();
+            } catch (Exception e) {
+                failed.increment();
+                future.completeExceptionally(e);
+            } finally {
+                extractNanos.add(System.nanoTime() - startNanos);
+            }
+        }
+
+        @Override
+        public int compareTo(ExtractionJob<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            return priority == Priority.VISIBLE ? Long.compare(other.order, order) : Long.compare(order, other.order);
+        }
+    }
+}
@@ -9,16 +9,69 @@ import org.jaudiotagger.tag.Tag;
 import org.jaudiotagger.tag.images.Artwork;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
 @Component
 
 public class MetadataService implements MetadataInterface {
+    private static final int RECENT_SNAPSHOT_LIMIT = 16;
+
+    private final MetadataCacheService metadataCache;
+    private final ArtworkCacheService artworkCache;
+    private final Mp3Probe mp3Probe = new Mp3Probe();
+    private final AudioFormatRegistry formatRegistry;
+    private final MetricsRegistry.Timer parseTimer;
+    private final MetricsRegistry.Timer probeTimer;
+    private final Map<String, ParsedTrack> recentSnapshots = new LinkedHashMap<>(RECENT_SNAPSHOT_LIMIT, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParsedTrack> eldest) {
+            return size() > RECENT_SNAPSHOT_LIMIT;
+        }
+    };
+
+    private record ParsedTrack(long size, long lastModified, TrackInfo info, byte[] artworkData) {
+        boolean matches(File file) {
+            return size == file.length() && lastModified == file.lastModified();
+        }
+    }
+
+    public MetadataService(MetadataCacheService metadataCache, ArtworkCacheService artworkCache) {
+        this(metadataCache, artworkCache, new MetricsRegistry());
+    }
+
+    public MetadataService(MetadataCacheService metadataCache, ArtworkCacheService artworkCache,
+                           MetricsRegistry metrics) {
+        this(metadataCache, artworkCache, metrics, new AudioFormatRegistry());
+    }
+
+    public MetadataService(MetadataCacheService metadataCache, ArtworkCacheService artworkCache,
+                           MetricsRegistry metrics, AudioFormatRegistry formatRegistry) {
+        this.metadataCache = metadataCache;
+        this.formatRegistry = formatRegistry;
+        this.artworkCache = artworkCache;
+        this.parseTimer = metrics.timer("metadata.parse");
+        this.probeTimer = metrics.timer("metadata.probe");
+        metrics.gauge("metadata.cache.hit-rate", () -> {
+            long hits = metadataCache.getHitCount();
+            long lookups = hits + metadataCache.getMissCount();
+            return lookups > 0 ? (double) hits / lookups : 0;
+        });
+        metrics.gauge("metadata.cache.entries", metadataCache::size);
+    }
+
     private AudioFile readAudioFile(File file) throws Exception {
-        return AudioFileIO.read(file);
+        AudioFormatRegistry.AudioFormat format = formatRegistry.detect(file);
+        if (format == null) {
+            return AudioFileIO.read(file);
+        }
+        return AudioFileIO.readAs(file, format.extension());
     }
 
     private String getSafeTagValue(Tag tag, org.jaudiotagger.tag.FieldKey key, String defaultValue) {
+        if (tag == null) {
+            return defaultValue;
+        }
         String value = tag.getFirst(key);
         return (value == null || value.isEmpty()) ? defaultValue : value;
     }
@@ -29,50 +82,118 @@ public class MetadataService implements MetadataInterface {
         return String.format("%d:%02d", minutes, remainingSeconds);
     }
 
-    @Override
-    public String formatSongMetadata(File file) throws Exception {
-        AudioFile audioFile = readAudioFile(file);
-        AudioHeader audioHeader = audioFile.getAudioHeader();
-        Tag tag = audioFile.getTag();
-
-        String artist = getSafeTagValue(tag, org.jaudiotagger.tag.FieldKey.ARTIST, "Unknown Artist");
-        String album = getSafeTagValue(tag, org.jaudiotagger.tag.FieldKey.ALBUM, "Unknown Album");
-        String title = getSafeTagValue(tag, org.jaudiotagger.tag.FieldKey.TITLE, file.getName());
-
-        int durationInSeconds = audioHeader.getTrackLength();
-        String duration = formatTime(durationInSeconds);
-
-        return String.format("%s - %s - %s (%s)", artist, album, title, duration);
+    private ParsedTrack parseTrack(File file) throws Exception {
+        long startNanos = System.nanoTime();
+        try {
+            return readTrack(file);
+        } finally {
+            parseTimer.record(System.nanoTime() - startNanos);
+        }
     }
 
-    @Override
-    public AudioMetadata getFileMetadata(File songFile) throws Exception {
-        AudioFile audioFile = readAudioFile(songFile);
+    private ParsedTrack readTrack(File file) throws Exception {
+        AudioFile audioFile = readAudioFile(file);
         AudioHeader audioHeader = audioFile.getAudioHeader();
         Tag tag = audioFile.getTag();
 
-        return new AudioMetadata(
+        byte[] artworkData = null;
+        ArtworkRef artworkRef = null;
+        Artwork artwork = tag != null ? tag.getFirstArtwork() : null;
+        if (artwork != null && artwork.getBinaryData() != null) {
+            artworkData = artwork.getBinaryData();
+            artworkRef = new ArtworkRef(ArtworkCacheService.hash(artworkData), artwork.getMimeType(), artworkData.length);
+        }
+
+        TrackInfo info = new TrackInfo(
                 audioHeader.getFormat(),
                 audioHeader.getBitRate(),
                 audioHeader.getSampleRate(),
                 getSafeTagValue(tag, org.jaudiotagger.tag.FieldKey.ARTIST, "Unknown Artist"),
                 getSafeTagValue(tag, org.jaudiotagger.tag.FieldKey.ALBUM, "Unknown Album"),
-                getSafeTagValue(tag, org.jaudiotagger.tag.FieldKey.TITLE, songFile.getName())
+                getSafeTagValue(tag, org.jaudiotagger.tag.FieldKey.TITLE, file.getName()),
+                audioHeader.getTrackLength(),
+                artworkRef
         );
+        return new ParsedTrack(file.length(), file.lastModified(), info, artworkData);
+    }
+
+    private ParsedTrack getParsedTrack(File file) throws Exception {
+        String key = file.getAbsolutePath();
+        synchronized (recentSnapshots) {
+            ParsedTrack recent = recentSnapshots.get(key);
+            if (recent != null && recent.matches(file)) {
+                return recent;
+            }
+        }
+
+        ParsedTrack parsed = parseTrack(file);
+        metadataCache.put(file, parsed.info());
+        synchronized (recentSnapshots) {
+            recentSnapshots.put(key, parsed);
+        }
+        return parsed;
     }
 
     @Override
-    public Image getAlbumArt(File file) throws Exception {
-        AudioFile audioFile = readAudioFile(file);
-        Tag tag = audioFile.getTag();
+    public TrackInfo getTrackInfo(File file) throws Exception {
+        MetadataCacheService.Entry cached = metadataCache.get(file);
+        if (cached != null) {
+            return cached.info();
+        }
+        if (file.getName().toLowerCase().endsWith(".mp3")) {
+            long startNanos = System.nanoTime();
+            TrackInfo probed = mp3Probe.probe(file);
+            probeTimer.record(System.nanoTime() - startNanos);
+            if (probed != null) {
+                return metadataCache.put(file, probed).info();
+            }
+        }
+        return getParsedTrack(file).info();
+    }
+
+    @Override
+    public String formatSongMetadata(File file) throws Exception {
+        TrackInfo info = getTrackInfo(file);
+        String duration = formatTime(info.durationSeconds());
 
-        if (tag != null) {
-            Artwork artwork = tag.getFirstArtwork();
-            if (artwork != null) {
-                byte[] imageData = artwork.getBinaryData();
-                return new Image(new ByteArrayInputStream(imageData));
+        return String.format("%s - %s - %s (%s)", info.artist(), info.album(), info.title(), duration);
+    }
+
+    @Override
+    public AudioMetadata getFileMetadata(File songFile) throws Exception {
+        return getTrackInfo(songFile).toAudioMetadata();
+    }
+
+    @Override
+    public Image getAlbumArt(File file) throws Exception {
+        ArtworkRef artwork = getTrackInfo(file).artwork();
+        if (artwork == null) {
+            return null;
+        }
+        if (artwork.hash() == null) {
+            artwork = getParsedTrack(file).info().artwork();
+            if (artwork == null) {
+                return null;
             }
         }
-        return null;
+        return artworkCache.getThumbnail(artwork, () -> getParsedTrack(file).artworkData());
+    }
+
+    @Override
+    public void invalidate(File file) {
+        metadataCache.invalidate(file);
+        synchronized (recentSnapshots) {
+            recentSnapshots.remove(file.getAbsolutePath());
+        }
+    }
+
+    @Override
+    public CacheStats getCacheStats() {
+        return new CacheStats(metadataCache.getHitCount(), metadataCache.getMissCount(), metadataCache.size());
+    }
+
+    @Override
+    public void saveCache() {
+        metadataCache.save();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,282 @@
+package com.example.jambo.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+public class MetricsRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+    public static final String OBJECT_NAME = "com.example.jambo:type=Metrics";
+
+    private final Map<String, Object> metrics = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> loggedCounts = new ConcurrentHashMap<>();
+    private final long logIntervalSeconds;
+    private ScheduledExecutorService scheduler;
+    private ObjectName registeredName;
+
+    public static final class Counter {
+        private final LongAdder count = new LongAdder();
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+    }
+
+    /**
+     * Log2-bucketed distribution: bucket {@code i} counts values in {@code [2^(i-1), 2^i)}, so
+     * percentiles are accurate to within a factor of two without storing samples.
+     */
+    public static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public void record(long value) {
+            long clamped = Math.max(0, value);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(clamped));
+            count.increment();
+            total.add(clamped);
+            max.accumulate(clamped);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public double mean() {
+            long samples = count.sum();
+            return samples > 0 ? (double) total.sum() / samples : 0;
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        public long percentile(double quantile) {
+            long samples = count.sum();
+            if (samples == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * samples);
+            long seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return i == 0 ? 0 : Math.min(max(), (1L << i) - 1);
+                }
+            }
+            return max();
+        }
+    }
+
+    public static final class Timer extends Histogram {
+        public <T> T time(Supplier<T> work) {
+            long startNanos = System.nanoTime();
+            try {
+                return work.get();
+            } finally {
+                record(System.nanoTime() - startNanos);
+            }
+        }
+
+        public void time(Runnable work) {
+            long startNanos = System.nanoTime();
+            try {
+                work.run();
+            } finally {
+                record(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    public MetricsRegistry() {
+        this(0);
+    }
+
+    public MetricsRegistry(long logIntervalSeconds) {
+        this.logIntervalSeconds = logIntervalSeconds;
+    }
+
+    public Counter counter(String name) {
+        return metric(name, Counter.class, Counter::new);
+    }
+
+    public Histogram histogram(String name) {
+        return metric(name, Histogram.class, Histogram::new);
+    }
+
+    public Timer timer(String name) {
+        return metric(name, Timer.class, Timer::new);
+    }
+
+    public void gauge(String name, DoubleSupplier value) {
+        metrics.put(name, value);
+    }
+
+    private <T> T metric(String name, Class<T> type, Supplier<T> factory) {
+        Object metric = metrics.computeIfAbsent(name, key -> factory.get());
+        if (metric.getClass() != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a "
+                    + metric.getClass().getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    public synchronized void start() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsMBean(), name);
+                registeredName = name;
+            }
+        } catch (JMException e) {
+            logger.warn("Failed to register metrics MBean: {}", e.getMessage());
+        }
+        if (logIntervalSeconds > 0 && scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jambo-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::logSummary, logIntervalSeconds, logIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (registeredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            } catch (JMException e) {
+                logger.warn("Failed to unregister metrics MBean: {}", e.getMessage());
+            }
+            registeredName = null;
+        }
+        logSummary();
+    }
+
+    /**
+     * Flattens every metric into {@code name.attribute} values; timers are reported in milliseconds.
+     */
+    public Map<String, Number> snapshot() {
+        Map<String, Number> values = new TreeMap<>();
+        metrics.forEach((name, metric) -> {
+            if (metric instanceof Counter counter) {
+                values.put(name + ".count", counter.count());
+            } else if (metric instanceof Histogram histogram) {
+                double scale = metric instanceof Timer ? 1e6 : 1;
+                values.put(name + ".count", histogram.count());
+                values.put(name + ".mean", histogram.mean() / scale);
+                values.put(name + ".p50", histogram.percentile(0.5) / scale);
+                values.put(name + ".p99", histogram.percentile(0.99) / scale);
+                values.put(name + ".max", histogram.max() / scale);
+            } else if (metric instanceof DoubleSupplier gauge) {
+                values.put(name, gauge.getAsDouble());
+            }
+        });
+        return values;
+    }
+
+    void logSummary() {
+        StringBuilder summary = new StringBuilder();
+        metrics.forEach((name, metric) -> {
+            if (metric instanceof Counter counter) {
+                long count = counter.count();
+                long previous = Optional.ofNullable(loggedCounts.put(name, count)).orElse(0L);
+                if (count != previous) {
+                    summary.append(String.format("%n  %s: %d (+%d, %.1f/s)", name, count, count - previous,
+                            logIntervalSeconds > 0 ? (double) (count - previous) / logIntervalSeconds : 0));
+                }
+            } else if (metric instanceof Histogram histogram) {
+                long count = histogram.count();
+                long previous = Optional.ofNullable(loggedCounts.put(name, count)).orElse(0L);
+                if (count != previous) {
+                    double scale = metric instanceof Timer ? 1e6 : 1;
+                    String unit = metric instanceof Timer ? " ms" : "";
+                    summary.append(String.format("%n  %s: n=%d mean=%.2f%s p50=%.2f%s p99=%.2f%s max=%.2f%s", name,
+                            count, histogram.mean() / scale, unit, histogram.percentile(0.5) / scale, unit,
+                            histogram.percentile(0.99) / scale, unit, histogram.max() / scale, unit));
+                }
+            } else if (metric instanceof DoubleSupplier gauge) {
+                summary.append(String.format("%n  %s: %.3f", name, gauge.getAsDouble()));
+            }
+        });
+        if (!summary.isEmpty()) {
+            logger.info("Metrics:{}", summary);
+        }
+    }
+
+    private class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Number value = snapshot().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Number> values = snapshot();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                Number value = values.get(attribute);
+                if (value != null) {
+                    list.add(new Attribute(attribute, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            snapshot().forEach((name, value) -> attributes.add(new MBeanAttributeInfo(name,
+                    value.getClass().getName(), name, true, false, false)));
+            return new MBeanInfo(MetricsRegistry.class.getName(), "Jambo runtime metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.jambo.services;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.BitstreamException;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.DecoderException;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.SampleBuffer;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+
+/**
+ * Streams MP3 PCM frame by frame; JLayer fixes its output format per decoder, so each file gets a new one.
+ */
+public class Mp3Decoder {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_CORRUPT_FRAMES = 32;
+
+    private final AudioFormatRegistry formatRegistry;
+
+    @FunctionalInterface
+    public interface PcmSink {
+        // Only the first length interleaved samples are valid, and the array is reused.
+        void accept(short[] samples, int length, int channels, int sampleRate);
+    }
+
+    public Mp3Decoder(AudioFormatRegistry formatRegistry) {
+        this.formatRegistry = formatRegistry;
+    }
+
+    public boolean canDecode(File file) {
+        try {
+            return formatRegistry.detect(file) == AudioFormatRegistry.MP3;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Throws InterruptedIOException when the calling thread is interrupted.
+    public void decode(File file, PcmSink sink) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), READ_BUFFER_SIZE)) {
+            Bitstream bitstream = new Bitstream(in);
+            Decoder decoder = new Decoder();
+            int corruptFrames = 0;
+            try {
+                Header header;
+                while ((header = bitstream.readFrame()) != null) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Decoding of " + file + " interrupted");
+                    }
+                    try {
+                        SampleBuffer output = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+                        sink.accept(output.getBuffer(), output.getBufferLength(), output.getChannelCount(),
+                                output.getSampleFrequency());
+                    } catch (DecoderException | ArrayIndexOutOfBoundsException e) {
+                        if (++corruptFrames > MAX_CORRUPT_FRAMES) {
+                            throw new IOException("Too many corrupt frames in " + file, e);
+                        }
+                    }
+                    bitstream.closeFrame();
+                }
+            } catch (BitstreamException e) {
+                throw new IOException("Failed to read MPEG stream of " + file, e);
+            } finally {
+                try {
+                    bitstream.close();
+                } catch (BitstreamException ignored) {
+                    // The underlying stream is closed by try-with-resources anyway.
+                }
+            }
+        }
+    }
+}
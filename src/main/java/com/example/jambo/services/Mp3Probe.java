@@ -0,0 +1,323 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+public class Mp3Probe {
+    private static final Logger logger = LoggerFactory.getLogger(Mp3Probe.class);
+    private static final int ID3_HEADER_SIZE = 10;
+    private static final int AUDIO_WINDOW = 16 * 1024;
+    private static final int ID3V1_SIZE = 128;
+
+    private static final int[] MPEG1_L3_BITRATES = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, -1};
+    private static final int[] MPEG2_L3_BITRATES = {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160, -1};
+    private static final int[][] SAMPLE_RATES = {
+            {11025, 12000, 8000, -1},
+            {-1, -1, -1, -1},
+            {22050, 24000, 16000, -1},
+            {44100, 48000, 32000, -1}
+    };
+
+    private static final class Tags {
+        String artist;
+        String album;
+        String title;
+        long lengthMillis = -1;
+        boolean hasArtwork;
+    }
+
+    record FrameHeader(int version, int bitrate, int sampleRate, boolean mono, int frameLength) {
+        int samplesPerFrame() {
+            return version == 3 ? 1152 : 576;
+        }
+
+        int sideInfoSize() {
+            if (version == 3) {
+                return mono ? 17 : 32;
+            }
+            return mono ? 9 : 17;
+        }
+
+        String formatName() {
+            return switch (version) {
+                case 3 -> "MPEG-1 Layer 3";
+                case 2 -> "MPEG-2 Layer 3";
+                default -> "MPEG-2.5 Layer 3";
+            };
+        }
+    }
+
+    public MetadataInterface.TrackInfo probe(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return probe(channel, file.getName());
+        } catch (Exception e) {
+            logger.debug("Probe failed for {}: {}", file.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private MetadataInterface.TrackInfo probe(FileChannel channel, String fileName) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < ID3_HEADER_SIZE) {
+            return null;
+        }
+
+        Tags tags = new Tags();
+        long audioStart = 0;
+        MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, ID3_HEADER_SIZE);
+        if (head.get(0) == 'I' && head.get(1) == 'D' && head.get(2) == '3') {
+            int majorVersion = head.get(3);
+            int flags = head.get(5) & 0xFF;
+            int tagSize = synchsafe(head, 6);
+            if (majorVersion < 2 || majorVersion > 4 || tagSize < 0 || (flags & 0x80) != 0) {
+                return null;
+            }
+            audioStart = ID3_HEADER_SIZE + (long) tagSize + ((flags & 0x10) != 0 ? 10 : 0);
+            if (audioStart >= fileSize) {
+                return null;
+            }
+            MappedByteBuffer tag = channel.map(FileChannel.MapMode.READ_ONLY, ID3_HEADER_SIZE, tagSize);
+            if (!readFrames(tag, majorVersion, flags, tags)) {
+                return null;
+            }
+        }
+
+        long windowSize = Math.min(AUDIO_WINDOW, fileSize - audioStart);
+        MappedByteBuffer audio = channel.map(FileChannel.MapMode.READ_ONLY, audioStart, windowSize);
+        int frameOffset = findFirstFrame(audio);
+        if (frameOffset < 0) {
+            return null;
+        }
+        FrameHeader header = parseFrameHeader(audio.getInt(frameOffset));
+
+        long audioBytes = fileSize - audioStart - frameOffset;
+        if (hasId3v1(channel, fileSize)) {
+            audioBytes -= ID3V1_SIZE;
+        }
+
+        long frameCount = readXingFrames(audio, frameOffset, header);
+        if (frameCount < 0) {
+            frameCount = readVbriFrames(audio, frameOffset);
+        }
+
+        int durationSeconds;
+        String bitRate;
+        if (frameCount > 0) {
+            double seconds = (double) frameCount * header.samplesPerFrame() / header.sampleRate();
+            durationSeconds = (int) seconds;
+            bitRate = "~" + Math.round(audioBytes * 8 / seconds / 1000);
+        } else if (tags.lengthMillis > 0) {
+            durationSeconds = (int) (tags.lengthMillis / 1000);
+            bitRate = String.valueOf(header.bitrate());
+        } else {
+            durationSeconds = (int) (audioBytes * 8 / (header.bitrate() * 1000L));
+            bitRate = String.valueOf(header.bitrate());
+        }
+
+        return new MetadataInterface.TrackInfo(
+                header.formatName(),
+                bitRate,
+                String.valueOf(header.sampleRate()),
+                orDefault(tags.artist, "Unknown Artist"),
+                orDefault(tags.album, "Unknown Album"),
+                orDefault(tags.title, fileName),
+                durationSeconds,
+                tags.hasArtwork ? new MetadataInterface.ArtworkRef(null, null, 0) : null
+        );
+    }
+
+    private boolean readFrames(ByteBuffer tag, int majorVersion, int tagFlags, Tags tags) {
+        int idLength = majorVersion == 2 ? 3 : 4;
+        int frameHeaderSize = majorVersion == 2 ? 6 : 10;
+        int position = 0;
+
+        if ((tagFlags & 0x40) != 0 && majorVersion >= 3) {
+            int extendedSize = majorVersion == 4 ? synchsafe(tag, 0) : tag.getInt(0) + 4;
+            if (extendedSize < 0) {
+                return false;
+            }
+            position = extendedSize;
+        }
+
+        while (position + frameHeaderSize <= tag.limit()) {
+            if (tag.get(position) == 0) {
+                break;
+            }
+            String id = ascii(tag, position, idLength);
+            int size;
+            int frameFlags = 0;
+            if (majorVersion == 2) {
+                size = ((tag.get(position + 3) & 0xFF) << 16) | ((tag.get(position + 4) & 0xFF) << 8)
+                        | (tag.get(position + 5) & 0xFF);
+            } else {
+                size = majorVersion == 4 ? synchsafe(tag, position + 4) : tag.getInt(position + 4);
+                frameFlags = tag.getShort(position + 8) & 0xFFFF;
+            }
+            int dataStart = position + frameHeaderSize;
+            if (size < 0 || dataStart + size > tag.limit()) {
+                return false;
+            }
+
+            boolean transformed = majorVersion == 4 ? (frameFlags & 0x000F) != 0 : (frameFlags & 0x00C0) != 0;
+            if (transformed && isTextFrameOfInterest(id)) {
+                return false;
+            }
+            switch (id) {
+                case "TPE1", "TP1" -> tags.artist = readText(tag, dataStart, size);
+                case "TALB", "TAL" -> tags.album = readText(tag, dataStart, size);
+                case "TIT2", "TT2" -> tags.title = readText(tag, dataStart, size);
+                case "TLEN", "TLE" -> tags.lengthMillis = parseLong(readText(tag, dataStart, size));
+                case "APIC", "PIC" -> tags.hasArtwork = true;
+                default -> {
+                }
+            }
+            position = dataStart + size;
+        }
+        return true;
+    }
+
+    private static boolean isTextFrameOfInterest(String id) {
+        return switch (id) {
+            case "TPE1", "TP1", "TALB", "TAL", "TIT2", "TT2", "TLEN", "TLE" -> true;
+            default -> false;
+        };
+    }
+
+    private String readText(ByteBuffer tag, int offset, int size) {
+        if (size < 1) {
+            return null;
+        }
+        int encoding = tag.get(offset);
+        Charset charset = switch (encoding) {
+            case 0 -> StandardCharsets.ISO_8859_1;
+            case 1 -> StandardCharsets.UTF_16;
+            case 2 -> StandardCharsets.UTF_16BE;
+            case 3 -> StandardCharsets.UTF_8;
+            default -> null;
+        };
+        if (charset == null) {
+            return null;
+        }
+        byte[] data = new byte[size - 1];
+        tag.get(offset + 1, data);
+        String text = new String(data, charset);
+        int terminator = text.indexOf('\0');
+        if (terminator >= 0) {
+            text = text.substring(0, terminator);
+        }
+        text = text.trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private int findFirstFrame(ByteBuffer audio) {
+        int limit = audio.limit() - 4;
+        for (int offset = 0; offset <= limit; offset++) {
+            if ((audio.get(offset) & 0xFF) != 0xFF || (audio.get(offset + 1) & 0xE0) != 0xE0) {
+                continue;
+            }
+            FrameHeader header = parseFrameHeader(audio.getInt(offset));
+            if (header == null) {
+                continue;
+            }
+            int next = offset + header.frameLength();
+            if (next + 4 > audio.limit() || parseFrameHeader(audio.getInt(next)) != null) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    static FrameHeader parseFrameHeader(int header) {
+        if ((header & 0xFFE00000) != 0xFFE00000) {
+            return null;
+        }
+        int version = (header >>> 19) & 0x3;
+        int layer = (header >>> 17) & 0x3;
+        int bitrateIndex = (header >>> 12) & 0xF;
+        int sampleRateIndex = (header >>> 10) & 0x3;
+        int padding = (header >>> 9) & 0x1;
+        boolean mono = ((header >>> 6) & 0x3) == 3;
+        if (version == 1 || layer != 1) {
+            return null;
+        }
+
+        int bitrate = (version == 3 ? MPEG1_L3_BITRATES : MPEG2_L3_BITRATES)[bitrateIndex];
+        int sampleRate = SAMPLE_RATES[version][sampleRateIndex];
+        if (bitrate <= 0 || sampleRate <= 0) {
+            return null;
+        }
+        int coefficient = version == 3 ? 144 : 72;
+        int frameLength = coefficient * bitrate * 1000 / sampleRate + padding;
+        return new FrameHeader(version, bitrate, sampleRate, mono, frameLength);
+    }
+
+    private long readXingFrames(ByteBuffer audio, int frameOffset, FrameHeader header) {
+        int offset = frameOffset + 4 + header.sideInfoSize();
+        if (offset + 12 > audio.limit()) {
+            return -1;
+        }
+        String id = ascii(audio, offset, 4);
+        if (!id.equals("Xing") && !id.equals("Info")) {
+            return -1;
+        }
+        int flags = audio.getInt(offset + 4);
+        return (flags & 0x1) != 0 ? Integer.toUnsignedLong(audio.getInt(offset + 8)) : -1;
+    }
+
+    private long readVbriFrames(ByteBuffer audio, int frameOffset) {
+        int offset = frameOffset + 4 + 32;
+        if (offset + 18 > audio.limit() || !ascii(audio, offset, 4).equals("VBRI")) {
+            return -1;
+        }
+        return Integer.toUnsignedLong(audio.getInt(offset + 14));
+    }
+
+    private boolean hasId3v1(FileChannel channel, long fileSize) throws IOException {
+        if (fileSize < ID3V1_SIZE) {
+            return false;
+        }
+        ByteBuffer marker = ByteBuffer.allocate(3);
+        channel.read(marker, fileSize - ID3V1_SIZE);
+        return marker.get(0) == 'T' && marker.get(1) == 'A' && marker.get(2) == 'G';
+    }
+
+    private static int synchsafe(ByteBuffer buffer, int offset) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = buffer.get(offset + i) & 0xFF;
+            if ((b & 0x80) != 0) {
+                return -1;
+            }
+            value = (value << 7) | b;
+        }
+        return value;
+    }
+
+    private static String ascii(ByteBuffer buffer, int offset, int length) {
+        byte[] data = new byte[length];
+        buffer.get(offset, data);
+        return new String(data, StandardCharsets.ISO_8859_1);
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String orDefault(String value, String defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+}
@@ -6,39 +6,136 @@ import com.example.jambo.event.MediaEventHandler;
 import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 @Service
 public abstract class MusicPlayerService implements MusicPlayerInterface {
+    private static final Logger logger = LoggerFactory.getLogger(MusicPlayerService.class);
     private MediaPlayer mediaPlayer;
+    private MediaPlayer preparedPlayer;
+    private String preparedSource;
+    private long transitionRequestedNanos = 0;
+    private long prefetchedTransitions = 0;
+    private long coldTransitions = 0;
+    private long prefetchedTransitionNanos = 0;
+    private long coldTransitionNanos = 0;
     private final VolumeController volumeController;
     private final MediaEventHandler eventHandler;
+    private final MetricsRegistry.Timer createTimer;
+    private final MetricsRegistry.Timer prefetchedTransitionTimer;
+    private final MetricsRegistry.Timer coldTransitionTimer;
 
     private boolean isPaused = false;
     private boolean isLooping = false;
 
+    public record TransitionStats(long prefetched, long cold, double averagePrefetchedMillis, double averageColdMillis) {
+    }
+
     public MusicPlayerService(VolumeController volumeController, MediaEventHandler eventHandler) {
+        this(volumeController, eventHandler, new MetricsRegistry());
+    }
+
+    public MusicPlayerService(VolumeController volumeController, MediaEventHandler eventHandler,
+                              MetricsRegistry metrics) {
         this.volumeController = volumeController;
         this.eventHandler = eventHandler;
+        this.createTimer = metrics.timer("player.create");
+        this.prefetchedTransitionTimer = metrics.timer("player.transition.prefetched");
+        this.coldTransitionTimer = metrics.timer("player.transition.cold");
     }
 
     @Override
     public void playMedia(Media media) {
+        long startNanos = System.nanoTime();
         if (mediaPlayer != null) {
             mediaPlayer.dispose();
         }
 
-        mediaPlayer = createMediaPlayer(media);
+        mediaPlayer = createTimer.time(() -> createMediaPlayer(media));
+        startPlayer(startNanos, false);
+    }
+
+    public void prepareNext(Media media) {
+        String source = media.getSource();
+        if (source.equals(preparedSource)) {
+            return;
+        }
+        discardPrepared();
+        long startNanos = System.nanoTime();
+        MediaPlayer player = createTimer.time(() -> createMediaPlayer(media));
+        player.setOnReady(() -> logger.debug("Prepared next track {} in {} ms", source,
+                (System.nanoTime() - startNanos) / 1_000_000));
+        preparedPlayer = player;
+        preparedSource = source;
+    }
+
+    public boolean playPrepared(String source) {
+        if (preparedPlayer == null || !source.equals(preparedSource)) {
+            return false;
+        }
+        long startNanos = System.nanoTime();
+        MediaPlayer previous = mediaPlayer;
+        mediaPlayer = preparedPlayer;
+        preparedPlayer = null;
+        preparedSource = null;
+        startPlayer(startNanos, true);
+        if (previous != null) {
+            previous.dispose();
+        }
+        return true;
+    }
+
+    public void discardPrepared() {
+        if (preparedPlayer != null) {
+            preparedPlayer.dispose();
+            preparedPlayer = null;
+            preparedSource = null;
+        }
+    }
+
+    private void startPlayer(long startNanos, boolean prefetched) {
+        long transitionStart = transitionRequestedNanos > 0 ? transitionRequestedNanos : startNanos;
+        transitionRequestedNanos = 0;
 
         volumeController.bindToMediaPlayer(mediaPlayer);
         eventHandler.initializeEventHandlers(mediaPlayer);
 
         mediaPlayer.setCycleCount(isLooping ? MediaPlayer.INDEFINITE : 1);
 
+        MediaPlayer player = mediaPlayer;
+        player.setOnPlaying(() -> {
+            player.setOnPlaying(null);
+            recordTransition(System.nanoTime() - transitionStart, prefetched);
+        });
         mediaPlayer.play();
         isPaused = false;
     }
 
+    private void recordTransition(long nanos, boolean prefetched) {
+        if (prefetched) {
+            prefetchedTransitions++;
+            prefetchedTransitionNanos += nanos;
+            prefetchedTransitionTimer.record(nanos);
+        } else {
+            coldTransitions++;
+            coldTransitionNanos += nanos;
+            coldTransitionTimer.record(nanos);
+        }
+        TransitionStats stats = getTransitionStats();
+        logger.info("Track transition took {} ms ({}); averages: prefetched {} ms over {}, cold {} ms over {}",
+                nanos / 1_000_000, prefetched ? "prefetched" : "cold",
+                String.format("%.1f", stats.averagePrefetchedMillis()), stats.prefetched(),
+                String.format("%.1f", stats.averageColdMillis()), stats.cold());
+    }
+
+    public TransitionStats getTransitionStats() {
+        return new TransitionStats(prefetchedTransitions, coldTransitions,
+                prefetchedTransitions > 0 ? prefetchedTransitionNanos / 1e6 / prefetchedTransitions : 0,
+                coldTransitions > 0 ? coldTransitionNanos / 1e6 / coldTransitions : 0);
+    }
+
 
     @Override
     public void pauseMedia() {
@@ -100,6 +197,7 @@ public abstract class MusicPlayerService implements MusicPlayerInterface {
                     mediaPlayer.seek(Duration.ZERO);
                     mediaPlayer.play();
                 } else {
+                    transitionRequestedNanos = System.nanoTime();
                     callback.run();
                 }
             });
@@ -8,31 +8,137 @@ import org.springframework.stereotype.Component;
 import java.io.File;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 @Component
 
 public class PlaylistService implements PlaylistInterface {
     private static final Logger logger = LoggerFactory.getLogger(PlaylistService.class);
 
-    private final Map<String, List<File>> playlists = new ConcurrentHashMap<>();
-    private final Map<String, Set<String>> loadedPathsPerPlaylist = new ConcurrentHashMap<>();
+    private final Map<String, IndexedPlaylist> playlists = new ConcurrentHashMap<>();
     private final Set<PlaylistChangeListener> listeners = ConcurrentHashMap.newKeySet();
+    private final Set<PlaylistContentListener> contentListeners = ConcurrentHashMap.newKeySet();
     private volatile String currentPlaylistName;
     private volatile boolean shuffleEnabled = false;
-    private Random random;
+    private static final int SHUFFLE_HISTORY_LIMIT = 1000;
+    private ShuffleEngine shuffleEngine;
+    private IndexedPlaylist shuffledPlaylist;
+    private final PlaylistStore store;
+    // Held across compaction and while playlists are created or deleted, ahead of any playlist lock.
+    private final Object persistLock = new Object();
+    private final MetricsRegistry.Timer notifyTimer;
+    private final MetricsRegistry.Timer contentNotifyTimer;
 
     public PlaylistService() {
+        this(null);
+    }
+
+    public PlaylistService(PlaylistStore store) {
+        this(store, new MetricsRegistry());
+    }
+
+    public PlaylistService(PlaylistStore store, MetricsRegistry metrics) {
+        this.store = store;
+        this.notifyTimer = metrics.timer("playlist.notify");
+        this.contentNotifyTimer = metrics.timer("playlist.notify.content");
         this.currentPlaylistName = "Default";
-        this.playlists.put(currentPlaylistName, Collections.synchronizedList(new ArrayList<>()));
-        this.loadedPathsPerPlaylist.put(currentPlaylistName, ConcurrentHashMap.newKeySet());
+        this.playlists.put(currentPlaylistName, new IndexedPlaylist());
     }
 
-    private void notifyPlaylistChanged(String playlistName) {
-        for (PlaylistChangeListener listener : listeners) {
-            listener.onPlaylistChanged(playlistName, playlists.get(playlistName));
-            if (playlistName.equals(currentPlaylistName)) {
-                listener.onCurrentPlaylistChanged(currentPlaylistName);
+    @Override
+    public synchronized boolean loadPersistedPlaylists() {
+        if (store == null || !store.exists()) {
+            return false;
+        }
+        Map<String, List<String>> saved = store.load();
+        saved.putIfAbsent("Default", new ArrayList<>());
+        for (Map.Entry<String, List<String>> entry : saved.entrySet()) {
+            IndexedPlaylist restored = new IndexedPlaylist(entry.getValue().stream().map(File::new).toList());
+            IndexedPlaylist previous = playlists.put(entry.getKey(), restored);
+            if (previous != null) {
+                notifySongsRemoved(entry.getKey(), previous.snapshot());
+            }
+            notifySongsAdded(entry.getKey(), restored.snapshot());
+        }
+        for (String name : new ArrayList<>(playlists.keySet())) {
+            if (!saved.containsKey(name)) {
+                notifySongsRemoved(name, playlists.remove(name).snapshot());
             }
         }
+        if (!playlists.containsKey(currentPlaylistName)) {
+            currentPlaylistName = "Default";
+        }
+        notifyCurrentPlaylistChanged();
+        return true;
+    }
+
+    @Override
+    public void persist() {
+        if (store == null) {
+            return;
+        }
+        synchronized (persistLock) {
+            store.sync();
+            int liveEntries = playlists.values().stream().mapToInt(IndexedPlaylist::size).sum();
+            if (store.needsCompaction(liveEntries)) {
+                compact(new ArrayList<>(playlists.entrySet()), 0, new LinkedHashMap<>());
+            }
+        }
+    }
+
+    // Every playlist stays locked from its snapshot until the journal is reset, so no edit can fall in between.
+    private void compact(List<Map.Entry<String, IndexedPlaylist>> entries, int next, Map<String, List<String>> snapshot) {
+        if (next == entries.size()) {
+            store.compact(snapshot);
+            return;
+        }
+        Map.Entry<String, IndexedPlaylist> entry = entries.get(next);
+        synchronized (entry.getValue()) {
+            snapshot.put(entry.getKey(), entry.getValue().snapshot().stream().map(File::getAbsolutePath).toList());
+            compact(entries, next + 1, snapshot);
+        }
+    }
+
+    public void close() {
+        if (store != null) {
+            persist();
+            store.close();
+        }
+    }
+
+    private void notifyCurrentPlaylistChanged() {
+        String playlistName = currentPlaylistName;
+        IndexedPlaylist playlist = playlists.get(playlistName);
+        synchronized (playlist) {
+            List<File> songs = playlist.snapshot();
+            long version = playlist.version();
+            notifyTimer.time(() -> listeners.forEach(listener ->
+                    listener.onCurrentPlaylistChanged(playlistName, songs, version)));
+        }
+    }
+
+    // Callers hold the playlist lock so listeners see each playlist's versions in order.
+    private void notifyPlaylistChanged(String playlistName, List<PlaylistChangeEvent> changes) {
+        if (!changes.isEmpty()) {
+            notifyTimer.time(() -> listeners.forEach(listener -> listener.onPlaylistChanged(playlistName, changes)));
+        }
+    }
+
+    private void notifyPlaylistChanged(PlaylistChangeEvent change) {
+        notifyPlaylistChanged(change.playlistName(), List.of(change));
+    }
+
+    private void notifySongsAdded(String playlistName, List<File> songs) {
+        if (!songs.isEmpty()) {
+            contentNotifyTimer.time(() -> contentListeners.forEach(listener -> listener.onSongsAdded(playlistName, songs)));
+        }
+    }
+
+    private void notifySongsRemoved(String playlistName, List<File> songs) {
+        if (!songs.isEmpty()) {
+            contentNotifyTimer.time(() -> contentListeners.forEach(listener -> listener.onSongsRemoved(playlistName, songs)));
+        }
     }
 
     @Override
@@ -40,27 +146,46 @@ public class PlaylistService implements PlaylistInterface {
         listeners.add(listener);
     }
 
+    @Override
+    public void addContentListener(PlaylistContentListener listener) {
+        contentListeners.add(listener);
+    }
+
     @Override
     public void createPlaylist(String name) {
-        if (!playlists.containsKey(name)) {
-            playlists.put(name, new ArrayList<>());
-            loadedPathsPerPlaylist.put(name, ConcurrentHashMap.newKeySet());
-            logger.info("Created new playlist: {}", name);
-            notifyPlaylistChanged(name);
-        } else {
-            logger.warn("Attempt to create duplicate playlist: {}", name);
+        synchronized (persistLock) {
+            if (playlists.containsKey(name)) {
+                logger.warn("Attempt to create duplicate playlist: {}", name);
+                return;
+            }
+            playlists.put(name, new IndexedPlaylist());
+            if (store != null) {
+                store.createPlaylist(name);
+            }
         }
+        logger.info("Created new playlist: {}", name);
     }
 
     @Override
     public void deletePlaylist(String name) {
-        if (!name.equals("Default") && playlists.containsKey(name)) {
-            playlists.remove(name);
-            loadedPathsPerPlaylist.remove(name);
+        if (name.equals("Default")) {
+            return;
+        }
+        IndexedPlaylist removed;
+        synchronized (persistLock) {
+            removed = playlists.remove(name);
+            if (removed != null && store != null) {
+                store.deletePlaylist(name);
+            }
+        }
+        if (removed != null) {
+            notifySongsRemoved(name, removed.snapshot());
+            synchronized (removed) {
+                notifyPlaylistChanged(new PlaylistChangeEvent.Cleared(name, removed.version() + 1));
+            }
             if (currentPlaylistName.equals(name)) {
                 switchToPlaylist("Default");
             }
-            notifyPlaylistChanged(name);
         }
     }
 
@@ -68,52 +193,285 @@ public class PlaylistService implements PlaylistInterface {
     public void switchToPlaylist(String name) {
         if (playlists.containsKey(name)) {
             currentPlaylistName = name;
-            loadedPathsPerPlaylist.putIfAbsent(name, ConcurrentHashMap.newKeySet());
-            notifyPlaylistChanged(name);
+            notifyCurrentPlaylistChanged();
+        }
+    }
+
+    @Override
+    public boolean addSong(File songFile) {
+        return addSong(currentPlaylistName, songFile);
+    }
+
+    @Override
+    public boolean addSong(String playlistName, File songFile) {
+        IndexedPlaylist playlist = playlists.get(playlistName);
+        if (playlist == null) {
+            return false;
+        }
+        synchronized (playlist) {
+            if (!playlist.add(songFile)) {
+                return false;
+            }
+            if (store != null) {
+                store.addSong(playlistName, songFile.getAbsolutePath());
+            }
+            notifySongsAdded(playlistName, List.of(songFile));
+            notifyPlaylistChanged(new PlaylistChangeEvent.Inserted(playlistName, playlist.version(),
+                    playlist.size() - 1, List.of(songFile)));
         }
+        return true;
+    }
+
+    @Override
+    public List<File> addSongs(Collection<File> songFiles) {
+        return addSongs(currentPlaylistName, songFiles);
     }
 
     @Override
-    public void addSong(File songFile) {
-        try {
-            List<File> playlist = playlists.get(currentPlaylistName);
-            if (playlist != null) {
-                String newPath = songFile.getAbsolutePath();
-                Set<String> loadedPathsForCurrentPlaylist = loadedPathsPerPlaylist.get(currentPlaylistName);
-                if (loadedPathsForCurrentPlaylist != null && loadedPathsForCurrentPlaylist.add(newPath)) {
-                    playlist.add(songFile);
-                    notifyPlaylistChanged(currentPlaylistName);
+    public List<File> addSongs(String playlistName, Collection<File> songFiles) {
+        IndexedPlaylist playlist = playlists.get(playlistName);
+        if (playlist == null || songFiles.isEmpty()) {
+            return List.of();
+        }
+        synchronized (playlist) {
+            int from = playlist.size();
+            List<File> added = playlist.addAll(songFiles);
+            if (!added.isEmpty()) {
+                if (store != null) {
+                    store.addSongs(playlistName, paths(added));
                 }
+                notifySongsAdded(playlistName, added);
+                notifyPlaylistChanged(new PlaylistChangeEvent.Inserted(playlistName, playlist.version(), from, added));
             }
-        } catch (Exception e) {
-            logger.error("Error adding song: {}", e.getMessage());
+            return added;
         }
     }
 
+    @Override
+    public boolean containsSong(String playlistName, File songFile) {
+        IndexedPlaylist playlist = playlists.get(playlistName);
+        return playlist != null && playlist.contains(songFile);
+    }
+
     @Override
     public void removeSong(int index) {
-        List<File> playlist = playlists.get(currentPlaylistName);
-        if (playlist != null && index >= 0 && index < playlist.size()) {
+        String playlistName = currentPlaylistName;
+        IndexedPlaylist playlist = playlists.get(playlistName);
+        synchronized (playlist) {
+            if (index < 0 || index >= playlist.size()) {
+                logger.warn("Attempted to remove invalid song index '{}' in playlist '{}'", index, playlistName);
+                return;
+            }
             File removedFile = playlist.remove(index);
-            Set<String> loadedPathsForCurrentPlaylist = loadedPathsPerPlaylist.get(currentPlaylistName);
-            if (loadedPathsForCurrentPlaylist != null) {
-                loadedPathsForCurrentPlaylist.remove(removedFile.getAbsolutePath());
+            if (store != null) {
+                store.removeSong(playlistName, removedFile.getAbsolutePath());
+            }
+            notifySongsRemoved(playlistName, List.of(removedFile));
+            notifyPlaylistChanged(new PlaylistChangeEvent.Removed(playlistName, playlist.version(),
+                    new int[]{index}, List.of(removedFile)));
+        }
+    }
+
+    @Override
+    public List<File> removeSongs(int[] indices) {
+        String playlistName = currentPlaylistName;
+        IndexedPlaylist playlist = playlists.get(playlistName);
+        if (indices.length == 0) {
+            return List.of();
+        }
+        synchronized (playlist) {
+            int size = playlist.size();
+            int[] valid = Arrays.stream(indices).filter(index -> index >= 0 && index < size).sorted().distinct().toArray();
+            List<File> removed = new ArrayList<>(valid.length);
+            for (int i = valid.length - 1; i >= 0; i--) {
+                removed.add(playlist.remove(valid[i]));
             }
-            notifyPlaylistChanged(currentPlaylistName);
-        } else {
-            logger.warn("Attempted to remove invalid song index '{}' in playlist '{}'", index, currentPlaylistName);
+            if (!removed.isEmpty()) {
+                Collections.reverse(removed);
+                if (store != null) {
+                    store.removeSongs(playlistName, paths(removed));
+                }
+                notifySongsRemoved(playlistName, removed);
+                notifyPlaylistChanged(new PlaylistChangeEvent.Removed(playlistName, playlist.version(), valid, removed));
+            }
+            return removed;
+        }
+    }
+
+    @Override
+    public void moveSong(int from, int to) {
+        String playlistName = currentPlaylistName;
+        IndexedPlaylist playlist = playlists.get(playlistName);
+        synchronized (playlist) {
+            int size = playlist.size();
+            if (from < 0 || from >= size || to < 0 || to >= size || from == to) {
+                return;
+            }
+            File song = playlist.get(from);
+            playlist.move(from, to);
+            if (store != null) {
+                store.moveSong(playlistName, song.getAbsolutePath(), to);
+            }
+            notifyPlaylistChanged(new PlaylistChangeEvent.Moved(playlistName, playlist.version(), from, to));
+        }
+    }
+
+    @Override
+    public boolean replaceSong(String playlistName, int index, File songFile) {
+        IndexedPlaylist playlist = playlists.get(playlistName);
+        if (playlist == null) {
+            return false;
+        }
+        synchronized (playlist) {
+            if (index < 0 || index >= playlist.size()) {
+                return false;
+            }
+            File previous = playlist.replace(index, songFile);
+            if (previous == null) {
+                return false;
+            }
+            if (!previous.equals(songFile)) {
+                if (store != null) {
+                    store.removeSong(playlistName, previous.getAbsolutePath());
+                    store.addSong(playlistName, songFile.getAbsolutePath());
+                    store.moveSong(playlistName, songFile.getAbsolutePath(), index);
+                }
+                notifySongsRemoved(playlistName, List.of(previous));
+                notifySongsAdded(playlistName, List.of(songFile));
+            }
+            notifyPlaylistChanged(new PlaylistChangeEvent.Replaced(playlistName, playlist.version(), index,
+                    previous, songFile));
+            return true;
+        }
+    }
+
+    @Override
+    public void batch(Consumer<PlaylistBatch> changes) {
+        String playlistName = currentPlaylistName;
+        IndexedPlaylist playlist = playlists.get(playlistName);
+        Batch batch = new Batch(playlistName, playlist);
+        synchronized (playlist) {
+            try {
+                changes.accept(batch);
+            } catch (RuntimeException e) {
+                batch.rollback();
+                logger.warn("Rolled back batch on playlist '{}': {}", playlistName, e.getMessage());
+                throw e;
+            }
+            if (batch.events.isEmpty()) {
+                return;
+            }
+            if (store != null) {
+                store.removeSongs(playlistName, paths(batch.removed));
+                store.addSongs(playlistName, paths(batch.added));
+            }
+            notifySongsRemoved(playlistName, batch.removed);
+            notifySongsAdded(playlistName, batch.added);
+            notifyPlaylistChanged(playlistName, List.copyOf(batch.events));
+        }
+    }
+
+    private static List<String> paths(List<File> songs) {
+        List<String> paths = new ArrayList<>(songs.size());
+        for (File song : songs) {
+            paths.add(song.getAbsolutePath());
+        }
+        return paths;
+    }
+
+    private static final class Batch implements PlaylistBatch {
+        private final String playlistName;
+        private final IndexedPlaylist playlist;
+        private final List<File> added = new ArrayList<>();
+        private final List<File> removed = new ArrayList<>();
+        private final List<PlaylistChangeEvent> events = new ArrayList<>();
+        private final Deque<Runnable> undo = new ArrayDeque<>();
+
+        Batch(String playlistName, IndexedPlaylist playlist) {
+            this.playlistName = playlistName;
+            this.playlist = playlist;
+        }
+
+        @Override
+        public boolean add(File songFile) {
+            if (!playlist.add(songFile)) {
+                return false;
+            }
+            undo.push(() -> playlist.remove(songFile));
+            added.add(songFile);
+            events.add(new PlaylistChangeEvent.Inserted(playlistName, playlist.version(), playlist.size() - 1,
+                    List.of(songFile)));
+            return true;
+        }
+
+        @Override
+        public File remove(int index) {
+            File songFile = playlist.remove(index);
+            undo.push(() -> playlist.insert(index, songFile));
+            if (!added.remove(songFile)) {
+                removed.add(songFile);
+            }
+            events.add(new PlaylistChangeEvent.Removed(playlistName, playlist.version(), new int[]{index},
+                    List.of(songFile)));
+            return songFile;
+        }
+
+        @Override
+        public boolean remove(File songFile) {
+            int index = playlist.indexOf(songFile);
+            if (index < 0) {
+                return false;
+            }
+            remove(index);
+            return true;
+        }
+
+        void rollback() {
+            while (!undo.isEmpty()) {
+                undo.pop().run();
+            }
+            added.clear();
+            removed.clear();
+            events.clear();
+        }
+    }
+
+    @Override
+    public int removeSongsIf(String playlistName, Predicate<File> filter) {
+        IndexedPlaylist playlist = playlists.get(playlistName);
+        if (playlist == null) {
+            return 0;
+        }
+        synchronized (playlist) {
+            IntStream.Builder indices = IntStream.builder();
+            List<File> removed = playlist.removeIf(filter, indices::add);
+            if (!removed.isEmpty()) {
+                if (store != null) {
+                    removed.forEach(file -> store.removeSong(playlistName, file.getAbsolutePath()));
+                }
+                notifySongsRemoved(playlistName, removed);
+                notifyPlaylistChanged(new PlaylistChangeEvent.Removed(playlistName, playlist.version(),
+                        indices.build().toArray(), removed));
+            }
+            return removed.size();
         }
     }
 
     public void clearPlaylist(String playlistName) {
-        List<File> playlist = playlists.get(playlistName);
-        if (playlist != null) {
+        IndexedPlaylist playlist = playlists.get(playlistName);
+        if (playlist == null) {
+            logger.warn("Attempted to clear non-existent playlist: {}", playlistName);
+            return;
+        }
+        synchronized (playlist) {
+            List<File> cleared = playlist.snapshot();
             playlist.clear();
-            loadedPathsPerPlaylist.get(playlistName).clear();
+            notifySongsRemoved(playlistName, cleared);
+            if (store != null) {
+                store.clearPlaylist(playlistName);
+            }
             logger.info("Cleared playlist '{}'", playlistName);
-            notifyPlaylistChanged(playlistName);
-        } else {
-            logger.warn("Attempted to clear non-existent playlist: {}", playlistName);
+            notifyPlaylistChanged(new PlaylistChangeEvent.Cleared(playlistName, playlist.version()));
         }
     }
 
@@ -134,49 +492,68 @@ public class PlaylistService implements PlaylistInterface {
 
     @Override
     public List<File> getPlaylistSongs(String playlistName) {
-        return new ArrayList<>(playlists.getOrDefault(playlistName, new ArrayList<>()));
+        IndexedPlaylist playlist = playlists.get(playlistName);
+        return playlist != null ? playlist.snapshot() : List.of();
     }
 
     @Override
     public synchronized void toggleShuffle() {
         shuffleEnabled = !shuffleEnabled;
         logger.info("Shuffle mode set to '{}'", shuffleEnabled);
-        if (shuffleEnabled && random == null) {
-            random = new Random();
+    }
+
+    private ShuffleEngine shuffleEngine(IndexedPlaylist playlist) {
+        if (shuffledPlaylist != playlist) {
+            shuffledPlaylist = playlist;
+            shuffleEngine = new ShuffleEngine(playlist, System.nanoTime(), SHUFFLE_HISTORY_LIMIT);
+        }
+        return shuffleEngine;
+    }
+
+    @Override
+    public synchronized int getNextSongIndex(int currentIndex) {
+        IndexedPlaylist currentPlaylist = playlists.get(currentPlaylistName);
+        int size = currentPlaylist.size();
+        if (currentIndex < 0 || size == 0) {
+            return -1;
         }
+        return shuffleEnabled ? shuffleEngine(currentPlaylist).next(currentIndex) : (currentIndex + 1) % size;
     }
 
     @Override
-    public int getNextSongIndex(int currentIndex) {
-        List<File> currentPlaylist = playlists.get(currentPlaylistName);
-        if (currentIndex >= 0 && !currentPlaylist.isEmpty()) {
-            return shuffleEnabled ? random.nextInt(currentPlaylist.size())
-                    : (currentIndex + 1) % currentPlaylist.size();
+    public synchronized int peekNextSongIndex(int currentIndex) {
+        IndexedPlaylist currentPlaylist = playlists.get(currentPlaylistName);
+        int size = currentPlaylist.size();
+        if (currentIndex < 0 || size == 0) {
+            return -1;
         }
-        return -1;
+        return shuffleEnabled ? shuffleEngine(currentPlaylist).peekNext(currentIndex) : (currentIndex + 1) % size;
     }
 
     @Override
-    public int getPreviousSongIndex(int currentIndex) {
-        List<File> currentPlaylist = playlists.get(currentPlaylistName);
-        if (currentIndex >= 0 && !currentPlaylist.isEmpty()) {
-            return shuffleEnabled ? random.nextInt(currentPlaylist.size())
-                    : (currentIndex - 1 + currentPlaylist.size()) % currentPlaylist.size();
+    public synchronized int getPreviousSongIndex(int currentIndex) {
+        IndexedPlaylist currentPlaylist = playlists.get(currentPlaylistName);
+        int size = currentPlaylist.size();
+        if (currentIndex < 0 || size == 0) {
+            return -1;
         }
-        return -1;
+        return shuffleEnabled ? shuffleEngine(currentPlaylist).previous(currentIndex)
+                : (currentIndex - 1 + size) % size;
     }
 
     @Override
     public File getSongFile(int index) {
-        List<File> currentPlaylist = playlists.get(currentPlaylistName);
-        if (index >= 0 && index < currentPlaylist.size()) {
-            return currentPlaylist.get(index);
+        IndexedPlaylist currentPlaylist = playlists.get(currentPlaylistName);
+        synchronized (currentPlaylist) {
+            if (index >= 0 && index < currentPlaylist.size()) {
+                return currentPlaylist.get(index);
+            }
         }
         return null;
     }
 
     @Override
     public List<File> getCurrentPlaylistSongs() {
-        return playlists.get(currentPlaylistName);
+        return playlists.get(currentPlaylistName).snapshot();
     }
 }
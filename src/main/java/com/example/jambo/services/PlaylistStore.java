@@ -0,0 +1,445 @@
+package com.example.jambo.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+public class PlaylistStore {
+    private static final Logger logger = LoggerFactory.getLogger(PlaylistStore.class);
+    public static final String DEFAULT_SNAPSHOT_FILE = "playlists.bin";
+    public static final String DEFAULT_JOURNAL_FILE = "playlists.journal";
+    private static final int SNAPSHOT_MAGIC = 0x4A504C53;
+    private static final int JOURNAL_MAGIC = 0x4A504C4A;
+    private static final int FORMAT_VERSION = 1;
+    private static final int JOURNAL_HEADER_SIZE = 16;
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final Path backupFile;
+    private final int compactionThreshold;
+    private long generation = 0;
+    private int journalRecords = 0;
+    private long journalValidLength = -1;
+    private FileChannel journal;
+    private boolean unsynced = false;
+    private boolean damaged = false;
+
+    private enum Operation { CREATE, DELETE, ADD, REMOVE, CLEAR, MOVE }
+
+    private enum SnapshotState { MISSING, LOADED, CORRUPT }
+
+    public PlaylistStore(int compactionThreshold) {
+        this(Path.of(DEFAULT_SNAPSHOT_FILE), Path.of(DEFAULT_JOURNAL_FILE), compactionThreshold);
+    }
+
+    public PlaylistStore(Path snapshotFile, Path journalFile, int compactionThreshold) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFile;
+        this.backupFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".bak");
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public synchronized boolean exists() {
+        return Files.exists(snapshotFile) || Files.exists(journalFile);
+    }
+
+    public synchronized Map<String, List<String>> load() {
+        Map<String, LinkedHashSet<String>> playlists = new LinkedHashMap<>();
+        boolean recovered = false;
+        damaged = false;
+        if (readSnapshot(snapshotFile, playlists) == SnapshotState.CORRUPT) {
+            recovered = readSnapshot(backupFile, playlists) == SnapshotState.LOADED;
+            if (recovered) {
+                logger.error("Playlist snapshot {} is unreadable, recovered from {}; edits made before its last "
+                        + "compaction may be missing", snapshotFile, backupFile);
+            } else {
+                damaged = true;
+                generation = 0;
+                logger.error("Playlist snapshot {} is unreadable and has no usable backup; keeping {} untouched "
+                        + "and not saving playlist changes", snapshotFile, journalFile);
+            }
+        }
+        int replayed = damaged ? 0 : replayJournal(playlists, recovered);
+        truncateTornTail();
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        playlists.forEach((name, paths) -> result.put(name, new ArrayList<>(paths)));
+        logger.info("Loaded {} playlists with {} songs ({} journal records replayed)", result.size(),
+                result.values().stream().mapToInt(List::size).sum(), replayed);
+        return result;
+    }
+
+    public void createPlaylist(String playlistName) {
+        append(Operation.CREATE, playlistName, null);
+    }
+
+    public void deletePlaylist(String playlistName) {
+        append(Operation.DELETE, playlistName, null);
+    }
+
+    public void addSong(String playlistName, String path) {
+        append(Operation.ADD, playlistName, path);
+    }
+
+    public void addSongs(String playlistName, Collection<String> paths) {
+        appendAll(Operation.ADD, playlistName, paths);
+    }
+
+    public void removeSong(String playlistName, String path) {
+        append(Operation.REMOVE, playlistName, path);
+    }
+
+    public void removeSongs(String playlistName, Collection<String> paths) {
+        appendAll(Operation.REMOVE, playlistName, paths);
+    }
+
+    public void clearPlaylist(String playlistName) {
+        append(Operation.CLEAR, playlistName, null);
+    }
+
+    public void moveSong(String playlistName, String path, int index) {
+        appendAll(Operation.MOVE, playlistName, Collections.singletonList(path), index);
+    }
+
+    public synchronized boolean needsCompaction(int liveEntries) {
+        return !damaged && journalRecords > Math.max(compactionThreshold, liveEntries / 2);
+    }
+
+    public synchronized void sync() {
+        if (journal == null || !unsynced) {
+            return;
+        }
+        try {
+            journal.force(false);
+            unsynced = false;
+        } catch (IOException e) {
+            logger.error("Failed to sync playlist journal {}: {}", journalFile, e.getMessage());
+        }
+    }
+
+    public synchronized void compact(Map<String, List<String>> playlists) {
+        if (damaged) {
+            logger.error("Not compacting playlists over the unreadable snapshot {}", snapshotFile);
+            return;
+        }
+        long nextGeneration = generation + 1;
+        Path tempSnapshot = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            writeSnapshot(tempSnapshot, nextGeneration, playlists);
+            if (Files.exists(snapshotFile)) {
+                Files.copy(snapshotFile, backupFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tempSnapshot, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Failed to write playlist snapshot {}: {}", snapshotFile, e.getMessage());
+            return;
+        }
+
+        int folded = journalRecords;
+        generation = nextGeneration;
+        closeJournal();
+        try {
+            resetJournal();
+        } catch (IOException e) {
+            logger.error("Failed to reset playlist journal {}: {}", journalFile, e.getMessage());
+        }
+        logger.info("Compacted playlists into {} ({} songs, {} journal records folded)", snapshotFile,
+                playlists.values().stream().mapToInt(List::size).sum(), folded);
+    }
+
+    public synchronized void close() {
+        sync();
+        closeJournal();
+    }
+
+    private void append(Operation operation, String playlistName, String path) {
+        appendAll(operation, playlistName, Collections.singletonList(path));
+    }
+
+    private void appendAll(Operation operation, String playlistName, Collection<String> paths) {
+        appendAll(operation, playlistName, paths, -1);
+    }
+
+    private synchronized void appendAll(Operation operation, String playlistName, Collection<String> paths,
+                                        int position) {
+        if (paths.isEmpty()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream records = new ByteArrayOutputStream(64 * paths.size());
+            DataOutputStream out = new DataOutputStream(records);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream payload = new DataOutputStream(bytes);
+            CRC32 crc = new CRC32();
+            for (String path : paths) {
+                bytes.reset();
+                payload.writeByte(operation.ordinal());
+                payload.writeUTF(playlistName);
+                if (path != null) {
+                    payload.writeUTF(path);
+                }
+                if (operation == Operation.MOVE) {
+                    payload.writeInt(position);
+                }
+                byte[] data = bytes.toByteArray();
+                crc.reset();
+                crc.update(data);
+                out.writeInt(data.length);
+                out.writeInt((int) crc.getValue());
+                out.write(data);
+            }
+            writeFully(openJournal(), ByteBuffer.wrap(records.toByteArray()));
+            journalRecords += paths.size();
+            unsynced = true;
+        } catch (IOException e) {
+            logger.error("Failed to append {} to playlist journal {}: {}", operation, journalFile, e.getMessage());
+        }
+    }
+
+    private FileChannel openJournal() throws IOException {
+        if (journal != null) {
+            return journal;
+        }
+        boolean fresh = !Files.exists(journalFile) || Files.size(journalFile) < JOURNAL_HEADER_SIZE
+                || readJournalGeneration() != generation;
+        if (fresh) {
+            if (damaged) {
+                throw new IOException("playlist snapshot " + snapshotFile + " is unreadable");
+            }
+            resetJournal();
+        }
+        journal = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return journal;
+    }
+
+    private void resetJournal() throws IOException {
+        Path tempJournal = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempJournal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, journalHeader(generation));
+            channel.force(true);
+        }
+        Files.move(tempJournal, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journalRecords = 0;
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close playlist journal {}: {}", journalFile, e.getMessage());
+        }
+        journal = null;
+    }
+
+    private long readJournalGeneration() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+            if (in.readInt() != JOURNAL_MAGIC || in.readInt() != FORMAT_VERSION) {
+                return -1;
+            }
+            return in.readLong();
+        }
+    }
+
+    private static ByteBuffer journalHeader(long generation) {
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+        header.putInt(JOURNAL_MAGIC).putInt(FORMAT_VERSION).putLong(generation).flip();
+        return header;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private SnapshotState readSnapshot(Path file, Map<String, LinkedHashSet<String>> playlists) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.error("Playlist snapshot {} has an unknown format", file);
+                return SnapshotState.CORRUPT;
+            }
+            long snapshotGeneration = in.readLong();
+            String[] directories = new String[in.readInt()];
+            for (int i = 0; i < directories.length; i++) {
+                directories[i] = in.readUTF();
+            }
+            int playlistCount = in.readInt();
+            for (int p = 0; p < playlistCount; p++) {
+                String name = in.readUTF();
+                int songCount = in.readInt();
+                LinkedHashSet<String> paths = new LinkedHashSet<>(songCount * 2);
+                for (int s = 0; s < songCount; s++) {
+                    int directory = in.readInt();
+                    String fileName = in.readUTF();
+                    paths.add(directory < 0 ? fileName : directories[directory] + File.separator + fileName);
+                }
+                playlists.put(name, paths);
+            }
+            generation = snapshotGeneration;
+            return SnapshotState.LOADED;
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            logger.info("No playlist snapshot found at {}", file);
+            return SnapshotState.MISSING;
+        } catch (Exception e) {
+            logger.error("Failed to load playlist snapshot {}: {}", file, e.toString());
+            playlists.clear();
+            return SnapshotState.CORRUPT;
+        }
+    }
+
+    // A snapshot recovered from its backup is one generation behind the journal written after it.
+    private int replayJournal(Map<String, LinkedHashSet<String>> playlists, boolean recovered) {
+        journalRecords = 0;
+        journalValidLength = -1;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+            if (in.readInt() != JOURNAL_MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.warn("Ignoring playlist journal {} with unknown format", journalFile);
+                return 0;
+            }
+            long journalGeneration = in.readLong();
+            if (recovered && journalGeneration == generation + 1) {
+                generation = journalGeneration;
+            } else if (journalGeneration != generation) {
+                logger.info("Playlist journal {} is from generation {}, snapshot is {}; skipping replay",
+                        journalFile, journalGeneration, generation);
+                return 0;
+            }
+            journalValidLength = JOURNAL_HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int checksum = in.readInt();
+                byte[] data = new byte[length];
+                in.readFully(data);
+                crc.reset();
+                crc.update(data);
+                if ((int) crc.getValue() != checksum) {
+                    logger.warn("Playlist journal {} has a corrupt record after {} entries, ignoring the rest",
+                            journalFile, journalRecords);
+                    break;
+                }
+                apply(playlists, new DataInputStream(new ByteArrayInputStream(data)));
+                journalRecords++;
+                journalValidLength += 8 + length;
+            }
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            return 0;
+        } catch (EOFException e) {
+            logger.warn("Playlist journal {} ends with a torn record, ignoring it", journalFile);
+        } catch (Exception e) {
+            logger.error("Failed to replay playlist journal {}: {}", journalFile, e.getMessage());
+        }
+        return journalRecords;
+    }
+
+    private void truncateTornTail() {
+        try {
+            if (journalValidLength > 0 && Files.size(journalFile) > journalValidLength) {
+                try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+                    channel.truncate(journalValidLength);
+                    channel.force(true);
+                }
+                logger.info("Truncated playlist journal {} to {} bytes", journalFile, journalValidLength);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to truncate playlist journal {}: {}", journalFile, e.getMessage());
+        }
+    }
+
+    private static void apply(Map<String, LinkedHashSet<String>> playlists, DataInputStream in) throws IOException {
+        Operation operation = Operation.values()[in.readUnsignedByte()];
+        String name = in.readUTF();
+        switch (operation) {
+            case CREATE -> playlists.putIfAbsent(name, new LinkedHashSet<>());
+            case DELETE -> playlists.remove(name);
+            case ADD -> playlists.computeIfAbsent(name, key -> new LinkedHashSet<>()).add(in.readUTF());
+            case REMOVE -> {
+                Set<String> paths = playlists.get(name);
+                String path = in.readUTF();
+                if (paths != null) {
+                    paths.remove(path);
+                }
+            }
+            case CLEAR -> {
+                Set<String> paths = playlists.get(name);
+                if (paths != null) {
+                    paths.clear();
+                }
+            }
+            case MOVE -> {
+                Set<String> paths = playlists.get(name);
+                String path = in.readUTF();
+                int index = in.readInt();
+                if (paths != null && paths.remove(path)) {
+                    List<String> reordered = new ArrayList<>(paths);
+                    reordered.add(Math.min(index, reordered.size()), path);
+                    paths.clear();
+                    paths.addAll(reordered);
+                }
+            }
+        }
+    }
+
+    private static void writeSnapshot(Path target, long generation, Map<String, List<String>> playlists)
+            throws IOException {
+        Map<String, Integer> directoryIndex = new HashMap<>();
+        List<String> directories = new ArrayList<>();
+        for (List<String> paths : playlists.values()) {
+            for (String path : paths) {
+                int separator = path.lastIndexOf(File.separatorChar);
+                if (separator >= 0) {
+                    directoryIndex.computeIfAbsent(path.substring(0, separator), key -> {
+                        directories.add(key);
+                        return directories.size() - 1;
+                    });
+                }
+            }
+        }
+
+        try (FileOutputStream file = new FileOutputStream(target.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(generation);
+            out.writeInt(directories.size());
+            for (String directory : directories) {
+                out.writeUTF(directory);
+            }
+            out.writeInt(playlists.size());
+            for (Map.Entry<String, List<String>> playlist : playlists.entrySet()) {
+                out.writeUTF(playlist.getKey());
+                out.writeInt(playlist.getValue().size());
+                for (String path : playlist.getValue()) {
+                    int separator = path.lastIndexOf(File.separatorChar);
+                    if (separator >= 0) {
+                        out.writeInt(directoryIndex.get(path.substring(0, separator)));
+                        out.writeUTF(path.substring(separator + 1));
+                    } else {
+                        out.writeInt(-1);
+                        out.writeUTF(path);
+                    }
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import com.example.jambo.Interfaces.PlaylistInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+public class SearchIndexService implements PlaylistInterface.PlaylistContentListener {
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexService.class);
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final MetadataExtractionService extractionService;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<File, Document> documents = new HashMap<>();
+    private final List<Document> documentsById = new ArrayList<>();
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private int deadDocuments = 0;
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    private static final class Document {
+        final int id;
+        final File file;
+        final Set<String> tokens = new HashSet<>();
+        int references = 1;
+        boolean metadataIndexed;
+
+        Document(int id, File file) {
+            this.id = id;
+            this.file = file;
+        }
+    }
+
+    private static final class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    public SearchIndexService(MetadataExtractionService extractionService) {
+        this.extractionService = extractionService;
+    }
+
+    @Override
+    public void onSongsAdded(String playlistName, List<File> songs) {
+        List<File> added = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (File song : songs) {
+                Document document = documents.get(song);
+                if (document != null) {
+                    document.references++;
+                    continue;
+                }
+                document = new Document(documentsById.size(), song);
+                documents.put(song, document);
+                documentsById.add(document);
+                addTokens(document, song.getAbsolutePath());
+                added.add(song);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        added.forEach(this::indexMetadata);
+        notifyChanged();
+    }
+
+    @Override
+    public void onSongsRemoved(String playlistName, List<File> songs) {
+        lock.writeLock().lock();
+        try {
+            for (File song : songs) {
+                Document document = documents.get(song);
+                if (document != null && --document.references == 0) {
+                    documents.remove(song);
+                    documentsById.set(document.id, null);
+                    deadDocuments++;
+                }
+            }
+            if (deadDocuments > 1024 && deadDocuments > documents.size()) {
+                rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyChanged();
+    }
+
+    public void reindex(File song) {
+        lock.writeLock().lock();
+        try {
+            Document stale = documents.get(song);
+            if (stale == null) {
+                return;
+            }
+            documentsById.set(stale.id, null);
+            deadDocuments++;
+            Document document = new Document(documentsById.size(), song);
+            document.references = stale.references;
+            documents.put(song, document);
+            documentsById.add(document);
+            addTokens(document, song.getAbsolutePath());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyChanged();
+        indexMetadata(song);
+    }
+
+    public Set<File> search(String query) {
+        long startNanos = System.nanoTime();
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        terms.sort(Comparator.comparingInt(String::length).reversed());
+
+        Set<File> matches = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            BitSet result = null;
+            for (String term : terms) {
+                BitSet hits = new BitSet(documentsById.size());
+                for (Postings posting : postings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+                    for (int i = 0; i < posting.size; i++) {
+                        hits.set(posting.ids[i]);
+                    }
+                }
+                if (result == null) {
+                    result = hits;
+                } else {
+                    result.and(hits);
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            if (result != null) {
+                for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+                    Document document = documentsById.get(id);
+                    if (document != null) {
+                        matches.add(document.file);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        logger.debug("Search '{}' matched {} songs in {} us", query, matches.size(),
+                (System.nanoTime() - startNanos) / 1000);
+        return matches;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void indexMetadata(File song) {
+        extractionService.submitTrackInfo(song, MetadataExtractionService.Priority.BACKGROUND)
+                .whenComplete((info, error) -> {
+                    if (info == null) {
+                        return;
+                    }
+                    lock.writeLock().lock();
+                    try {
+                        Document document = documents.get(song);
+                        if (document == null || document.metadataIndexed) {
+                            return;
+                        }
+                        addTokens(document, metadataText(info));
+                        document.metadataIndexed = true;
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    notifyChanged();
+                });
+    }
+
+    /**
+     * @param listener called after songs or their metadata were indexed or removed, on whichever
+     *                 thread made the change
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    private void notifyChanged() {
+        changeListeners.forEach(Runnable::run);
+    }
+
+    private static String metadataText(MetadataInterface.TrackInfo info) {
+        return info.artist() + " " + info.album() + " " + info.title();
+    }
+
+    private void addTokens(Document document, String text) {
+        for (String token : tokenize(text)) {
+            if (document.tokens.add(token)) {
+                postings.computeIfAbsent(token, key -> new Postings()).add(document.id);
+            }
+        }
+    }
+
+    private void rebuild() {
+        List<Document> live = new ArrayList<>(documents.values());
+        live.sort(Comparator.comparingInt(document -> document.id));
+        documentsById.clear();
+        postings.clear();
+        documents.clear();
+        for (Document old : live) {
+            Document document = new Document(documentsById.size(), old.file);
+            document.references = old.references;
+            document.metadataIndexed = old.metadataIndexed;
+            documents.put(old.file, document);
+            documentsById.add(document);
+            for (String token : old.tokens) {
+                document.tokens.add(token);
+                postings.computeIfAbsent(token, key -> new Postings()).add(document.id);
+            }
+        }
+        logger.info("Rebuilt search index after removing {} songs, {} remain", deadDocuments, documents.size());
+        deadDocuments = 0;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
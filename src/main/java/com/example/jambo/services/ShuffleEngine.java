@@ -0,0 +1,169 @@
+package com.example.jambo.services;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class ShuffleEngine {
+    private final IndexedPlaylist playlist;
+    private final int historyLimit;
+    private final SplittableRandom random;
+
+    // Slots hold value + 1 so a zeroed array is the identity permutation and
+    // Fisher-Yates swaps only happen for positions that are actually reached.
+    private int[] order = new int[0];
+    private int[] positions = new int[0];
+    private long[] playedIds = new long[16];
+    private int generated = 0;
+    private int cursor = -1;
+    private int stepsBack = 0;
+    private long syncedVersion = -1;
+
+    public ShuffleEngine(IndexedPlaylist playlist, long seed, int historyLimit) {
+        this.playlist = playlist;
+        this.random = new SplittableRandom(seed);
+        this.historyLimit = historyLimit;
+    }
+
+    public synchronized int next(int currentIndex) {
+        if (!sync(currentIndex)) {
+            return -1;
+        }
+        if (cursor + 1 >= generated && !generateNext()) {
+            return valueAt(cursor);
+        }
+        cursor++;
+        if (stepsBack > 0) {
+            stepsBack--;
+        }
+        return valueAt(cursor);
+    }
+
+    public synchronized int peekNext(int currentIndex) {
+        if (!sync(currentIndex)) {
+            return -1;
+        }
+        if (cursor + 1 >= generated && !generateNext()) {
+            return valueAt(cursor);
+        }
+        return valueAt(cursor + 1);
+    }
+
+    public synchronized int previous(int currentIndex) {
+        if (!sync(currentIndex)) {
+            return -1;
+        }
+        if (cursor > 0 && stepsBack < historyLimit) {
+            cursor--;
+            stepsBack++;
+        }
+        return valueAt(cursor);
+    }
+
+    private boolean sync(int currentIndex) {
+        if (syncedVersion != playlist.version()) {
+            remap();
+        }
+        int size = order.length;
+        if (size == 0 || currentIndex < 0 || currentIndex >= size) {
+            return false;
+        }
+        if (cursor < 0 || valueAt(cursor) != currentIndex) {
+            select(currentIndex);
+        }
+        return true;
+    }
+
+    private void select(int index) {
+        int position = positionOf(index);
+        if (position < generated) {
+            cursor = position;
+        } else {
+            place(index);
+            cursor = generated - 1;
+        }
+        stepsBack = 0;
+    }
+
+    private boolean generateNext() {
+        int size = order.length;
+        if (size == 0) {
+            return false;
+        }
+        if (generated == size) {
+            if (cursor + 1 < generated) {
+                return true;
+            }
+            int current = valueAt(cursor);
+            Arrays.fill(order, 0);
+            Arrays.fill(positions, 0);
+            generated = 0;
+            place(current);
+            cursor = 0;
+            stepsBack = 0;
+            if (size == 1) {
+                return false;
+            }
+        }
+        int target = generated + random.nextInt(size - generated);
+        swap(generated, target);
+        record(generated);
+        generated++;
+        return true;
+    }
+
+    private void place(int index) {
+        swap(generated, positionOf(index));
+        record(generated);
+        generated++;
+    }
+
+    private void record(int position) {
+        if (position == playedIds.length) {
+            playedIds = Arrays.copyOf(playedIds, Math.max(16, position * 2));
+        }
+        playedIds[position] = playlist.entryIdAt(valueAt(position));
+    }
+
+    private void remap() {
+        synchronized (playlist) {
+            int size = playlist.size();
+            long[] previousIds = Arrays.copyOf(playedIds, generated);
+            long currentId = cursor >= 0 ? playedIds[cursor] : -1;
+            order = new int[size];
+            positions = new int[size];
+            playedIds = new long[Math.max(16, Math.min(size, previousIds.length + 16))];
+            generated = 0;
+            cursor = -1;
+            for (long entryId : previousIds) {
+                int index = playlist.indexOfEntry(entryId);
+                if (index >= 0) {
+                    place(index);
+                    if (entryId == currentId) {
+                        cursor = generated - 1;
+                    }
+                }
+            }
+            stepsBack = 0;
+            syncedVersion = playlist.version();
+        }
+    }
+
+    private int valueAt(int position) {
+        int value = order[position];
+        return value == 0 ? position : value - 1;
+    }
+
+    private int positionOf(int value) {
+        int position = positions[value];
+        return position == 0 ? value : position - 1;
+    }
+
+    private void swap(int first, int second) {
+        int firstValue = valueAt(first);
+        int secondValue = valueAt(second);
+        order[first] = secondValue + 1;
+        order[second] = firstValue + 1;
+        positions[secondValue] = first + 1;
+        positions[firstValue] = second + 1;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.jambo.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits startup into named phases, measured from JVM start to the moment the restored library is
+ * shown (time-to-interactive).
+ */
+public class StartupTimeline {
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimeline.class);
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final long originNanos;
+    private final long jvmMillis;
+    private long lastNanos;
+    private long interactiveMillis = -1;
+
+    public StartupTimeline() {
+        originNanos = System.nanoTime();
+        lastNanos = originNanos;
+        jvmMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        phases.put("jvm", jvmMillis);
+    }
+
+    public synchronized void mark(String phase) {
+        long now = System.nanoTime();
+        phases.merge(phase, TimeUnit.NANOSECONDS.toMillis(now - lastNanos), Long::sum);
+        lastNanos = now;
+    }
+
+    public synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    public synchronized long elapsedMillis() {
+        return jvmMillis + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - originNanos);
+    }
+
+    public synchronized long getInteractiveMillis() {
+        return interactiveMillis;
+    }
+
+    public synchronized void finish(MetricsRegistry metrics) {
+        if (interactiveMillis >= 0) {
+            return;
+        }
+        long total = elapsedMillis();
+        interactiveMillis = total;
+        StringJoiner breakdown = new StringJoiner(", ");
+        phases.forEach((phase, millis) -> {
+            breakdown.add(phase + " " + millis + " ms");
+            metrics.gauge("startup." + phase + ".ms", () -> millis);
+        });
+        metrics.gauge("startup.time-to-interactive.ms", () -> total);
+        logger.info("Interactive after {} ms ({})", total, breakdown);
+    }
+}
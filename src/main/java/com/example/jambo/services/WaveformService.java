@@ -0,0 +1,252 @@
+package com.example.jambo.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Produces min/max peak envelopes for drawing a track's waveform. Each file is decoded at most once
+ * on a single background thread; envelopes are stored as one small file per track, keyed by a hash
+ * of its path and validated against its size and modification time.
+ */
+public class WaveformService {
+    private static final Logger logger = LoggerFactory.getLogger(WaveformService.class);
+    public static final String DEFAULT_CACHE_DIR = "waveform_cache";
+    private static final int MAGIC = 0x4A574631;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FRAMES_PER_CHUNK = 256;
+    private static final int MEMORY_ENTRIES = 8;
+
+    /**
+     * Peaks per bucket as signed fractions of full scale, quantised to a byte each.
+     */
+    public record Peaks(byte[] min, byte[] max) {
+        public int bucketCount() {
+            return min.length;
+        }
+    }
+
+    private final Mp3Decoder decoder;
+    private final int buckets;
+    private final Path cacheDirectory;
+    private final MetricsRegistry.Timer computeTimer;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jambo-waveform");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final Map<String, CompletableFuture<Peaks>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Peaks> recent = new LinkedHashMap<>(16, 0.75f, true);
+
+    public WaveformService(Mp3Decoder decoder, int buckets, Path cacheDirectory, MetricsRegistry metrics) {
+        this.decoder = decoder;
+        this.buckets = buckets;
+        this.cacheDirectory = cacheDirectory;
+        this.computeTimer = metrics.timer("waveform.compute");
+    }
+
+    /**
+     * @return the peaks of the file, completed immediately when they are in memory. Completes with
+     * null for files that cannot be decoded.
+     */
+    public CompletableFuture<Peaks> getPeaks(File file) {
+        String path = file.getAbsolutePath();
+        synchronized (recent) {
+            Peaks cached = recent.get(path);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        CompletableFuture<Peaks> created = new CompletableFuture<>();
+        CompletableFuture<Peaks> existing = inFlight.putIfAbsent(path, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            worker.execute(() -> {
+                try {
+                    Peaks peaks = load(file, path);
+                    inFlight.remove(path, created);
+                    created.complete(peaks);
+                } catch (RuntimeException e) {
+                    inFlight.remove(path, created);
+                    created.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(path, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    /**
+     * Computes the peaks of an upcoming track ahead of time so they are in memory when it starts.
+     */
+    public void prefetch(File file) {
+        if (file != null) {
+            getPeaks(file);
+        }
+    }
+
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private Peaks load(File file, String path) {
+        long size = file.length();
+        long lastModified = file.lastModified();
+        Path stored = cacheDirectory.resolve(ArtworkCacheService.hash(path.getBytes(StandardCharsets.UTF_8)) + ".peaks");
+        Peaks peaks = readStored(stored, size, lastModified);
+        if (peaks == null && decoder.canDecode(file)) {
+            peaks = compute(file);
+            if (peaks != null) {
+                store(stored, size, lastModified, peaks);
+            }
+        }
+        if (peaks != null) {
+            remember(path, peaks);
+        }
+        return peaks;
+    }
+
+    private Peaks compute(File file) {
+        PeakCollector collector = new PeakCollector();
+        long startNanos = System.nanoTime();
+        try {
+            decoder.decode(file, collector);
+        } catch (IOException e) {
+            logger.warn("Could not compute waveform of {}: {}", file, e.getMessage());
+            return null;
+        } finally {
+            computeTimer.record(System.nanoTime() - startNanos);
+        }
+        return collector.downsample(buckets);
+    }
+
+    private void remember(String path, Peaks peaks) {
+        synchronized (recent) {
+            recent.put(path, peaks);
+            Iterator<String> it = recent.keySet().iterator();
+            while (recent.size() > MEMORY_ENTRIES && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    private Peaks readStored(Path stored, long size, long lastModified) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(stored)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+                    || in.readLong() != size || in.readLong() != lastModified) {
+                return null;
+            }
+            int count = in.readInt();
+            if (count != buckets) {
+                return null;
+            }
+            byte[] min = new byte[count];
+            byte[] max = new byte[count];
+            in.readFully(min);
+            in.readFully(max);
+            return new Peaks(min, max);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Failed to read stored waveform {}: {}", stored, e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(Path stored, long size, long lastModified, Peaks peaks) {
+        Path temp = stored.resolveSibling(stored.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(cacheDirectory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(size);
+                out.writeLong(lastModified);
+                out.writeInt(peaks.bucketCount());
+                out.write(peaks.min());
+                out.write(peaks.max());
+            }
+            Files.move(temp, stored, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to store waveform {}: {}", stored, e.getMessage());
+        }
+    }
+
+    // The track length is unknown until decoding ends, so peaks are first kept per fixed-size chunk.
+    private static final class PeakCollector implements Mp3Decoder.PcmSink {
+        private short[] chunkMin = new short[1024];
+        private short[] chunkMax = new short[1024];
+        private int chunks;
+        private int chunkFrames;
+        private int currentMin = Short.MAX_VALUE;
+        private int currentMax = Short.MIN_VALUE;
+
+        @Override
+        public void accept(short[] samples, int length, int channels, int sampleRate) {
+            for (int i = 0; i + channels <= length; i += channels) {
+                for (int c = 0; c < channels; c++) {
+                    int sample = samples[i + c];
+                    currentMin = Math.min(currentMin, sample);
+                    currentMax = Math.max(currentMax, sample);
+                }
+                if (++chunkFrames == FRAMES_PER_CHUNK) {
+                    completeChunk();
+                }
+            }
+        }
+
+        private void completeChunk() {
+            if (chunks == chunkMin.length) {
+                chunkMin = Arrays.copyOf(chunkMin, chunks * 2);
+                chunkMax = Arrays.copyOf(chunkMax, chunks * 2);
+            }
+            chunkMin[chunks] = (short) currentMin;
+            chunkMax[chunks] = (short) currentMax;
+            chunks++;
+            chunkFrames = 0;
+            currentMin = Short.MAX_VALUE;
+            currentMax = Short.MIN_VALUE;
+        }
+
+        Peaks downsample(int buckets) {
+            if (chunkFrames > 0) {
+                completeChunk();
+            }
+            byte[] min = new byte[buckets];
+            byte[] max = new byte[buckets];
+            if (chunks == 0) {
+                return new Peaks(min, max);
+            }
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                int from = (int) ((long) bucket * chunks / buckets);
+                int to = Math.max(from + 1, (int) ((long) (bucket + 1) * chunks / buckets));
+                int low = Short.MAX_VALUE;
+                int high = Short.MIN_VALUE;
+                for (int chunk = from; chunk < to; chunk++) {
+                    low = Math.min(low, chunkMin[chunk]);
+                    high = Math.max(high, chunkMax[chunk]);
+                }
+                min[bucket] = (byte) (low >> 8);
+                max[bucket] = (byte) (high >> 8);
+            }
+            return new Peaks(min, max);
+        }
+    }
+}
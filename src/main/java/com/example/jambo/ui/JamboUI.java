@@ -12,30 +12,33 @@ import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.Tooltip;
 
+import java.io.File;
+
 public class JamboUI {
     private final IconService iconService;
     private final DialogService dialogService;
-    private final ListView<String> songListView;
+    private final ListView<File> songListView;
     private final Label currentSongLabel;
     private final Label timerLabel;
     private final Label fileInfoLabel;
-    private final Slider progressSlider;
+    private final WaveformSeekBar seekBar;
     private final Slider volumeSlider;
     private final ComboBox<String> playlistComboBox;
+    private final TextField searchField;
     private final Pane albumArtPlaceholder;
 
     public JamboUI(IconService iconService,
                    DialogService dialogService,
-                   Slider progressSlider,
+                   WaveformSeekBar seekBar,
                    Slider volumeSlider,
                    Label currentSongLabel,
                    Label timerLabel,
                    Label fileInfoLabel,
                    Pane albumArtPlaceholder,
-                   ListView<String> songListView) {
+                   ListView<File> songListView) {
         this.iconService = iconService;
         this.dialogService = dialogService;
-        this.progressSlider = progressSlider;
+        this.seekBar = seekBar;
         this.volumeSlider = volumeSlider;
         this.currentSongLabel = currentSongLabel;
         this.timerLabel = timerLabel;
@@ -43,6 +46,7 @@ public class JamboUI {
         this.albumArtPlaceholder = albumArtPlaceholder;
         this.songListView = songListView;
         this.playlistComboBox = new ComboBox<>();
+        this.searchField = new TextField();
 
         setupUI();
     }
@@ -101,29 +105,30 @@ public class JamboUI {
         ContextMenu contextMenu = new ContextMenu();
 
         MenuItem removeItem = new MenuItem("Remove");
-        removeItem.setOnAction(event -> {
-            int selectedIndex = songListView.getSelectionModel().getSelectedIndex();
-            if (selectedIndex >= 0) {
-                controller.removeSong(selectedIndex);
-            }
-        });
+        removeItem.setOnAction(event -> controller.removeSelectedSong());
 
         MenuItem propertiesItem = new MenuItem("Properties");
         propertiesItem.setOnAction(event -> {
-            int selectedIndex = songListView.getSelectionModel().getSelectedIndex();
-            if (selectedIndex >= 0) {
-                dialogService.showPropertiesDialog(controller.getSongFile(selectedIndex));
+            File selectedSong = songListView.getSelectionModel().getSelectedItem();
+            if (selectedSong != null) {
+                dialogService.showPropertiesDialog(selectedSong);
             }
         });
 
-        contextMenu.getItems().addAll(removeItem, propertiesItem);
+        MenuItem collapseDuplicatesItem = new MenuItem("Collapse Duplicates");
+        collapseDuplicatesItem.setOnAction(event ->
+                controller.collapseDuplicates(dialogService::confirmCollapseDuplicates));
+
+        contextMenu.getItems().addAll(removeItem, propertiesItem, collapseDuplicatesItem);
         songListView.setContextMenu(contextMenu);
     }
 
     public Scene createScene(JamboController controller) {
         BorderPane mainLayout = new BorderPane();
         mainLayout.setTop(createHeaderBox(controller));
-        mainLayout.setCenter(songListView);
+        searchField.setPromptText("Search artist, album, title or path");
+        BorderPane.setMargin(searchField, new Insets(0, 10, 5, 10));
+        mainLayout.setCenter(new BorderPane(songListView, searchField, null, null, null));
 
         VBox bottomContainer = new VBox(10);
         bottomContainer.setPadding(new Insets(10));
@@ -198,11 +203,13 @@ public class JamboUI {
     }
 
     private VBox createProgressBox() {
-        HBox timeBox = new HBox(10, timerLabel, progressSlider);
-        HBox.setHgrow(progressSlider, Priority.ALWAYS);
+        HBox timeBox = new HBox(10, timerLabel, seekBar);
+        timeBox.setAlignment(Pos.CENTER_LEFT);
+        HBox.setHgrow(seekBar, Priority.ALWAYS);
         return new VBox(5, timeBox, fileInfoLabel);
     }
 
-    public ListView<String> getSongListView() { return songListView; }
-    public Slider getProgressSlider() { return progressSlider; }
+    public ListView<File> getSongListView() { return songListView; }
+    public TextField getSearchField() { return searchField; }
+    public Slider getProgressSlider() { return seekBar.getSlider(); }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.example.jambo.ui;
+
+import javafx.application.Platform;
+import javafx.scene.control.ListCell;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+
+public class SongListCell extends ListCell<File> {
+    private final LabelSource labelSource;
+
+    public interface LabelSource {
+        String getCachedLabel(File song);
+
+        CompletableFuture<String> requestLabel(File song);
+
+        void prefetchAround(int index);
+    }
+
+    public SongListCell(LabelSource labelSource) {
+        this.labelSource = labelSource;
+    }
+
+    @Override
+    protected void updateItem(File song, boolean empty) {
+        super.updateItem(song, empty);
+        if (empty || song == null) {
+            setText(null);
+            return;
+        }
+
+        String label = labelSource.getCachedLabel(song);
+        if (label != null) {
+            setText(label);
+        } else {
+            setText(song.getName());
+            labelSource.requestLabel(song).thenAccept(text -> Platform.runLater(() -> {
+                if (song.equals(getItem())) {
+                    setText(text);
+                }
+            }));
+        }
+        labelSource.prefetchAround(getIndex());
+    }
+}
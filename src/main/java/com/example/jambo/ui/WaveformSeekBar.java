@@ -0,0 +1,98 @@
+package com.example.jambo.ui;
+
+import com.example.jambo.services.WaveformService;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+
+/**
+ * Draws a track's waveform behind the progress slider. The slider keeps handling input and its
+ * track is made transparent; the canvas repaints fully when the peaks or its size change and
+ * otherwise only the columns that switched between played and remaining.
+ */
+public class WaveformSeekBar extends StackPane {
+    private static final double HEIGHT = 32;
+    private static final Color PLAYED = Color.web("#3a7bd5");
+    private static final Color REMAINING = Color.web("#a9a9a9");
+
+    private final Slider slider;
+    private final Canvas canvas = new Canvas(0, HEIGHT);
+    private WaveformService.Peaks peaks;
+    private int playedColumns = -1;
+
+    public WaveformSeekBar(Slider slider) {
+        this.slider = slider;
+        setMinHeight(HEIGHT);
+        setPrefHeight(HEIGHT);
+        canvas.setMouseTransparent(true);
+        canvas.widthProperty().bind(widthProperty());
+        canvas.widthProperty().addListener((observable, oldValue, newValue) -> redraw());
+        slider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            int played = playedColumns(newValue.doubleValue());
+            if (played != playedColumns) {
+                int previous = playedColumns;
+                playedColumns = played;
+                drawColumns(Math.min(previous, played), Math.max(previous, played));
+            }
+        });
+        slider.skinProperty().addListener((observable, oldSkin, newSkin) -> {
+            Node track = slider.lookup(".track");
+            if (track != null) {
+                track.setStyle("-fx-background-color: transparent;");
+            }
+        });
+        slider.setMaxWidth(Double.MAX_VALUE);
+        getChildren().addAll(canvas, slider);
+    }
+
+    /**
+     * @param peaks the envelope of the playing track, or null to clear the waveform
+     */
+    public void setPeaks(WaveformService.Peaks peaks) {
+        this.peaks = peaks;
+        redraw();
+    }
+
+    public Slider getSlider() {
+        return slider;
+    }
+
+    private int playedColumns(double progress) {
+        return (int) (Math.max(0, Math.min(1, progress)) * canvas.getWidth());
+    }
+
+    private void redraw() {
+        playedColumns = playedColumns(slider.getValue());
+        drawColumns(0, (int) canvas.getWidth());
+    }
+
+    private void drawColumns(int from, int to) {
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        int columns = (int) canvas.getWidth();
+        from = Math.max(0, from);
+        to = Math.min(columns, to);
+        graphics.clearRect(from, 0, to - from, HEIGHT);
+        if (peaks == null || peaks.bucketCount() == 0 || from >= to) {
+            return;
+        }
+        int bucketCount = peaks.bucketCount();
+        double middle = HEIGHT / 2;
+        double scale = (HEIGHT / 2 - 1) / 128.0;
+        graphics.setLineWidth(1);
+        for (int x = from; x < to; x++) {
+            int first = (int) ((long) x * bucketCount / columns);
+            int last = Math.max(first + 1, (int) ((long) (x + 1) * bucketCount / columns));
+            int low = Byte.MAX_VALUE;
+            int high = Byte.MIN_VALUE;
+            for (int bucket = first; bucket < last; bucket++) {
+                low = Math.min(low, peaks.min()[bucket]);
+                high = Math.max(high, peaks.max()[bucket]);
+            }
+            graphics.setStroke(x < playedColumns ? PLAYED : REMAINING);
+            graphics.strokeLine(x + 0.5, middle - high * scale - 0.5, x + 0.5, middle - low * scale + 0.5);
+        }
+    }
+}
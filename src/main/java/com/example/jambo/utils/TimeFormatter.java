@@ -2,8 +2,16 @@ package com.example.jambo.utils;
 
 public class TimeFormatter {
     public static String formatTime(double seconds) {
-        int minutes = (int) (seconds / 60);
-        int remainingSeconds = (int) (seconds % 60);
-        return String.format("%d:%02d", minutes, remainingSeconds);
+        return appendTime(new StringBuilder(8), seconds).toString();
     }
-}
\ No newline at end of file
+
+    public static StringBuilder appendTime(StringBuilder target, double seconds) {
+        int totalSeconds = Double.isFinite(seconds) && seconds > 0 ? (int) seconds : 0;
+        int remainingSeconds = totalSeconds % 60;
+        target.append(totalSeconds / 60).append(':');
+        if (remainingSeconds < 10) {
+            target.append('0');
+        }
+        return target.append(remainingSeconds);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.jambo.controllers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JamboControllerTest {
+    @Test
+    void restoreInBackground_WhenRestoreFails_ShouldReportItAndStillRunChainedActions() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CompletableFuture<Void> restored = JamboController.restoreInBackground(() -> {
+            throw new IllegalStateException("corrupt playlist");
+        }, Runnable::run, Runnable::run, failure::set, () -> events.add("restored"));
+
+        restored.thenRun(() -> events.add("import")).get(5, TimeUnit.SECONDS);
+
+        assertFalse(restored.isCompletedExceptionally());
+        assertInstanceOf(IllegalStateException.class, failure.get().getCause());
+        assertEquals(List.of("restored", "import"), events);
+    }
+
+    @Test
+    void restoreInBackground_WhenRestoreSucceeds_ShouldNotReportFailure() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> restored = JamboController.restoreInBackground(() -> events.add("load"),
+                Runnable::run, Runnable::run, error -> events.add("failed"), () -> events.add("restored"));
+
+        restored.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("load", "restored"), events);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.jambo.managers;
+
+import com.example.jambo.controllers.VolumeController;
+import com.example.jambo.event.MediaEventHandler;
+import com.example.jambo.services.LoudnessAnalysisService;
+import com.example.jambo.services.MusicPlayerService;
+import com.example.jambo.services.WaveformService;
+import javafx.animation.Animation;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class MusicPlayerManagerTest {
+    private VolumeController volumeController;
+    private MusicPlayerManager musicPlayerManager;
+    private int timelinesCreated;
+
+    @BeforeEach
+    void setUp() {
+        // Controls cannot be created without a running toolkit, so the manager gets no labels or sliders.
+        volumeController = new VolumeController(null);
+        MusicPlayerService musicPlayerService = new MusicPlayerService(volumeController, mock(MediaEventHandler.class)) {
+            @Override
+            protected MediaPlayer createMediaPlayer(Media media) {
+                return mock(MediaPlayer.class);
+            }
+        };
+        musicPlayerManager = new MusicPlayerManager(musicPlayerService, volumeController,
+                mock(LoudnessAnalysisService.class), null, null, null, mock(WaveformService.class), null, false, 10) {
+            @Override
+            protected Animation createProgressTimeline(Duration interval, Runnable sample) {
+                timelinesCreated++;
+                return stubTimeline();
+            }
+        };
+    }
+
+    private static Animation stubTimeline() {
+        AtomicReference<Animation.Status> status = new AtomicReference<>(Animation.Status.STOPPED);
+        Animation timeline = mock(Animation.class);
+        doAnswer(invocation -> {
+            status.set(Animation.Status.RUNNING);
+            return null;
+        }).when(timeline).play();
+        doAnswer(invocation -> {
+            status.set(Animation.Status.STOPPED);
+            return null;
+        }).when(timeline).stop();
+        when(timeline.getStatus()).thenAnswer(invocation -> status.get());
+        return timeline;
+    }
+
+    @Test
+    void playMedia_WhenPlayedRepeatedly_ShouldKeepOneProgressSubscription() {
+        for (int i = 0; i < 5; i++) {
+            musicPlayerManager.playMedia(mock(Media.class));
+            assertEquals(1, musicPlayerManager.getProgressSubscriptionCount());
+        }
+        assertEquals(1, timelinesCreated);
+    }
+
+    @Test
+    void playMedia_WhenPlayedRepeatedly_ShouldNotAccumulateVolumeListeners() {
+        volumeController.addVolumeChangeListener((volume, muted) -> { });
+        int listeners = musicPlayerManager.getVolumeListenerCount();
+
+        for (int i = 0; i < 5; i++) {
+            musicPlayerManager.playMedia(mock(Media.class));
+        }
+        volumeController.toggleMute();
+
+        assertEquals(listeners, musicPlayerManager.getVolumeListenerCount());
+    }
+}
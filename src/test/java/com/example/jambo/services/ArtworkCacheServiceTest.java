@@ -0,0 +1,83 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArtworkCacheServiceTest {
+    // A 16x16 thumbnail is estimated at 16 * 16 * 4 bytes.
+    private static final long THUMBNAIL_BYTES = 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private static byte[] png(Color color) throws Exception {
+        BufferedImage image = new BufferedImage(40, 40, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, color.getRGB());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private Image thumbnail(ArtworkCacheService cache, byte[] data) throws Exception {
+        MetadataInterface.ArtworkRef artwork = new MetadataInterface.ArtworkRef(ArtworkCacheService.hash(data),
+                "image/png", data.length);
+        return cache.getThumbnail(artwork, () -> {
+            loads.incrementAndGet();
+            return data;
+        });
+    }
+
+    @Test
+    void getThumbnail_WhenBudgetIsExceeded_ShouldEvictLeastRecentlyUsed() throws Exception {
+        ArtworkCacheService cache = new ArtworkCacheService(2 * THUMBNAIL_BYTES, 16, null);
+        byte[] red = png(Color.RED);
+        byte[] green = png(Color.GREEN);
+        byte[] blue = png(Color.BLUE);
+
+        Image first = thumbnail(cache, red);
+        assertEquals(16, first.getWidth());
+        thumbnail(cache, green);
+        assertSame(first, thumbnail(cache, red));
+        thumbnail(cache, blue);
+
+        assertEquals(2, cache.size());
+        assertEquals(2 * THUMBNAIL_BYTES, cache.getUsedBytes());
+        assertSame(first, thumbnail(cache, red));
+        assertEquals(3, loads.get());
+        thumbnail(cache, green);
+        assertEquals(4, loads.get());
+        assertEquals(2 * THUMBNAIL_BYTES, cache.getUsedBytes());
+    }
+
+    @Test
+    void getThumbnail_WhenArtworkIsShared_ShouldDecodeAndStoreItOnce() throws Exception {
+        Path thumbnails = tempDir.resolve("thumbnails");
+        ArtworkCacheService cache = new ArtworkCacheService(1 << 20, 16, thumbnails);
+        byte[] cover = png(Color.RED);
+
+        Image image = thumbnail(cache, cover);
+        assertSame(image, thumbnail(cache, cover.clone()));
+        assertEquals(1, cache.getDecodeCount());
+        assertEquals(1, cache.getMemoryHitCount());
+        assertTrue(thumbnails.resolve(ArtworkCacheService.hash(cover) + ".png").toFile().isFile());
+
+        ArtworkCacheService restarted = new ArtworkCacheService(1 << 20, 16, thumbnails);
+        assertEquals(16, thumbnail(restarted, cover).getWidth());
+        assertEquals(1, restarted.getDiskHitCount());
+        assertEquals(0, restarted.getDecodeCount());
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.jambo.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioFormatRegistryTest {
+    @TempDir
+    Path tempDir;
+
+    private final AudioFormatRegistry registry = new AudioFormatRegistry();
+
+    private File write(String name, byte[] data) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.write(file, data);
+        return file.toFile();
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] mp3(int frames) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{'I', 'D', '3', 3, 0, 0, 0, 0, 0, 20});
+        out.writeBytes(new byte[20]);
+        for (int i = 0; i < frames; i++) {
+            byte[] frame = new byte[417];
+            frame[0] = (byte) 0xFF;
+            frame[1] = (byte) 0xFB;
+            frame[2] = (byte) 0x90;
+            out.writeBytes(frame);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] wav(int encoding) {
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(ascii("RIFF")).putInt(36).put(ascii("WAVE")).put(ascii("fmt ")).putInt(16)
+                .putShort((short) encoding).putShort((short) 2).putInt(44100).putInt(176400)
+                .putShort((short) 4).putShort((short) 16).put(ascii("data")).putInt(0);
+        return header.array();
+    }
+
+    @Test
+    void detect_WhenExtensionIsMisleading_ShouldUseFileContent() throws Exception {
+        assertEquals(AudioFormatRegistry.MP3, registry.detect(write("song.flac", mp3(12))));
+        assertEquals(AudioFormatRegistry.WAV, registry.detect(write("song.mp3", wav(1))));
+        assertEquals(AudioFormatRegistry.MP4, registry.detect(write("song.bin",
+                ByteBuffer.allocate(16).putInt(16).put(ascii("ftypM4A ")).array())));
+        assertEquals(AudioFormatRegistry.FLAC, registry.detect(write("song.mp3", ascii("fLaC\0\0\0\0"))));
+        assertEquals(AudioFormatRegistry.OGG, registry.detect(write("song.mp3", ascii("OggS\0\u0002"))));
+        assertEquals(AudioFormatRegistry.COMPRESSED_WAV, registry.detect(write("adpcm.wav", wav(2))));
+    }
+
+    @Test
+    void detect_WhenFileIsJunkOrUnplayable_ShouldRejectIt() throws Exception {
+        byte[] junk = new byte[8192];
+        for (int i = 0; i < junk.length; i += 97) {
+            junk[i] = (byte) 0xFF;
+            junk[i + 1] = (byte) 0xFB;
+        }
+        assertNull(registry.detect(write("junk.mp3", junk)));
+        assertNull(registry.detect(write("cover.jpg", new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0})));
+        assertFalse(registry.isPlayable(write("song.flac", ascii("fLaC"))));
+        assertFalse(registry.isPlayable(tempDir.resolve("missing.mp3").toFile()));
+        assertTrue(registry.isPlayable(write("song.mp3", mp3(3))));
+
+        registry.register(header -> header.limit() >= 4 && header.getInt(0) == 0xFFD8FFE0
+                ? new AudioFormatRegistry.AudioFormat("JPEG", "jpg", false) : null);
+        assertEquals("JPEG", registry.detect(write("cover.jpg",
+                new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0})).name());
+    }
+
+    @Test
+    void detect_WhenTagsAreStackedOrFramesStartLate_ShouldStillFindMp3() throws Exception {
+        ByteArrayOutputStream stacked = new ByteArrayOutputStream();
+        stacked.writeBytes(new byte[]{'I', 'D', '3', 4, 0, 0, 0, 0, 0, 30});
+        stacked.writeBytes(new byte[30]);
+        stacked.writeBytes(mp3(12));
+        assertEquals(AudioFormatRegistry.MP3, registry.detect(write("stacked.mp3", stacked.toByteArray())));
+
+        ByteArrayOutputStream padded = new ByteArrayOutputStream();
+        padded.writeBytes(new byte[]{'I', 'D', '3', 3, 0, 0, 0, 0, 0, 20});
+        padded.writeBytes(new byte[20 + 10_000]);
+        byte[] frames = mp3(12);
+        padded.write(frames, 30, frames.length - 30);
+        assertEquals(AudioFormatRegistry.MP3, registry.detect(write("padded.mp3", padded.toByteArray())));
+    }
+}
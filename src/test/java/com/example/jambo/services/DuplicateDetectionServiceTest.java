@@ -0,0 +1,112 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class DuplicateDetectionServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private final MetadataExtractionService extraction =
+            new MetadataExtractionService(mock(MetadataInterface.class), 2, 2);
+
+    @AfterEach
+    void shutdown() {
+        extraction.shutdown();
+    }
+
+    private DuplicateDetectionService service() {
+        return new DuplicateDetectionService(extraction, new AudioFormatRegistry(), tempDir.resolve("fingerprints.bin"));
+    }
+
+    private File mp3(String name, String title, int seed, boolean id3v1) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] text = title.getBytes(StandardCharsets.ISO_8859_1);
+        int size = 11 + text.length;
+        out.writeBytes(new byte[]{'I', 'D', '3', 3, 0, 0, 0, 0, 0, (byte) size});
+        out.writeBytes(new byte[]{'T', 'I', 'T', '2', 0, 0, 0, (byte) (text.length + 1), 0, 0, 0});
+        out.writeBytes(text);
+        for (int i = 0; i < 8; i++) {
+            byte[] frame = new byte[417];
+            frame[0] = (byte) 0xFF;
+            frame[1] = (byte) 0xFB;
+            frame[2] = (byte) 0x90;
+            frame[100] = (byte) (seed + i);
+            out.writeBytes(frame);
+        }
+        if (id3v1) {
+            byte[] tag = new byte[128];
+            tag[0] = 'T';
+            tag[1] = 'A';
+            tag[2] = 'G';
+            System.arraycopy(text, 0, tag, 3, Math.min(30, text.length));
+            out.writeBytes(tag);
+        }
+        Path file = tempDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, out.toByteArray());
+        return file.toFile();
+    }
+
+    @Test
+    void fingerprint_WhenOnlyTagsDiffer_ShouldMatch() throws Exception {
+        DuplicateDetectionService service = service();
+        File original = mp3("a/song.mp3", "Song", 1, false);
+        File retagged = mp3("b/song.mp3", "Song (Remastered Tag)", 1, true);
+        File other = mp3("c/other.mp3", "Song", 2, false);
+
+        assertEquals(service.fingerprint(original), service.fingerprint(retagged));
+        assertNotEquals(service.fingerprint(original), service.fingerprint(other));
+
+        service.save();
+        assertEquals(service.fingerprint(retagged), service().fingerprint(retagged));
+    }
+
+    @Test
+    void findDuplicates_WhenCopiesSpanPlaylists_ShouldGroupAndCollapseWithinEach() throws Exception {
+        File first = mp3("x/one.mp3", "One", 5, false);
+        File copy = mp3("y/one.mp3", "One", 5, true);
+        File unique = mp3("x/two.mp3", "Two", 9, false);
+        Map<String, List<File>> playlists = Map.of(
+                "Default", List.of(first, unique, copy),
+                "Road trip", List.of(copy));
+
+        List<DuplicateDetectionService.DuplicateGroup> groups = service().findDuplicates(playlists).join();
+        assertEquals(1, groups.size());
+        assertEquals(Set.of(first, copy), Set.copyOf(groups.get(0).copies()));
+        assertEquals(Set.of("Default", "Road trip"), groups.get(0).playlists());
+
+        assertEquals(Set.of(copy), DuplicateDetectionService.redundantCopies(playlists.get("Default"), groups));
+        assertTrue(DuplicateDetectionService.redundantCopies(playlists.get("Road trip"), groups).isEmpty());
+    }
+
+    @Test
+    void findDuplicates_WhenFilesHaveNoAudioPayload_ShouldNotGroupThem() throws Exception {
+        Path tagOnly = tempDir.resolve("tag-only.mp3");
+        byte[] tag = new byte[110];
+        System.arraycopy(new byte[]{'I', 'D', '3', 3, 0, 0, 0, 0, 0, 100}, 0, tag, 0, 10);
+        Files.write(tagOnly, tag);
+        Path truncated = tempDir.resolve("truncated.mp3");
+        Files.write(truncated, new byte[]{'I', 'D', '3', 3, 0, 0, 0, 0, 0x40, 0, 1, 2, 3});
+        DuplicateDetectionService service = service();
+
+        assertNull(service.fingerprint(tagOnly.toFile()));
+        assertNull(service.fingerprint(truncated.toFile()));
+        assertTrue(service.findDuplicates(Map.of("Default", List.of(tagOnly.toFile(), truncated.toFile())))
+                .join().isEmpty());
+    }
+}
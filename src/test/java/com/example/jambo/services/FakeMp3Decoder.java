@@ -0,0 +1,88 @@
+package com.example.jambo.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for JLayer in tests: "decodes" registered files into generated PCM and counts the decodes.
+ */
+class FakeMp3Decoder extends Mp3Decoder {
+    interface Signal {
+        void write(PcmSink sink);
+    }
+
+    private final Map<String, Signal> signals = new ConcurrentHashMap<>();
+    private final AtomicInteger decodes = new AtomicInteger();
+
+    FakeMp3Decoder() {
+        super(new AudioFormatRegistry());
+    }
+
+    /**
+     * Writes a small placeholder file that decodes to the given signal, or cannot be decoded when it is null.
+     */
+    File track(Path file, Signal signal) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[]{1, 2, 3});
+        if (signal != null) {
+            signals.put(file.toAbsolutePath().toString(), signal);
+        }
+        return file.toFile();
+    }
+
+    int decodes() {
+        return decodes.get();
+    }
+
+    @Override
+    public boolean canDecode(File file) {
+        return signals.containsKey(file.getAbsolutePath());
+    }
+
+    @Override
+    public void decode(File file, PcmSink sink) {
+        decodes.incrementAndGet();
+        signals.get(file.getAbsolutePath()).write(sink);
+    }
+
+    /**
+     * A stereo 1 kHz sine of the given amplitude, in frames of 1152 samples.
+     */
+    static Signal sine(double amplitude, int sampleRate, int seconds) {
+        return sink -> {
+            short[] frame = new short[2304];
+            long position = 0;
+            for (int i = 0; i < seconds * sampleRate / 1152; i++) {
+                for (int s = 0; s < frame.length; s += 2) {
+                    short value = (short) Math.round(amplitude * 32767 * Math.sin(2 * Math.PI * 1000 * position++ / sampleRate));
+                    frame[s] = value;
+                    frame[s + 1] = value;
+                }
+                sink.accept(frame, frame.length, 2, sampleRate);
+            }
+        };
+    }
+
+    /**
+     * A stereo ramp whose amplitude grows from silence to full scale over the given number of 1152-sample
+     * frames, positive on the left channel and negative on the right.
+     */
+    static Signal ramp(int frames) {
+        return sink -> {
+            short[] frame = new short[2304];
+            for (int i = 0; i < frames; i++) {
+                short level = (short) (i * 32767 / (frames - 1));
+                for (int s = 0; s < frame.length; s += 2) {
+                    frame[s] = level;
+                    frame[s + 1] = (short) -level;
+                }
+                sink.accept(frame, frame.length, 2, 44100);
+            }
+        };
+    }
+}
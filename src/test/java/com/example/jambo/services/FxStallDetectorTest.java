@@ -0,0 +1,45 @@
+package com.example.jambo.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FxStallDetectorTest {
+    @Test
+    void getRecentStalls_WhenFxThreadBlocks_ShouldReportCallSite() throws Exception {
+        ExecutorService fxThread = Executors.newSingleThreadExecutor();
+        FxStallDetector detector = new FxStallDetector(fxThread, 10, 50, 4, new MetricsRegistry());
+        detector.start();
+        try {
+            Thread.sleep(100);
+            fxThread.execute(FxStallDetectorTest::blockOnTheFxThread);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (detector.getStallCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        } finally {
+            detector.close();
+            fxThread.shutdownNow();
+        }
+
+        List<FxStallDetector.Stall> stalls = detector.getRecentStalls();
+        assertFalse(stalls.isEmpty());
+        FxStallDetector.Stall stall = stalls.get(0);
+        assertTrue(stall.durationMillis() >= 200, "duration " + stall.durationMillis());
+        assertTrue(stall.samples() > 0);
+        assertTrue(stall.callSite().contains("blockOnTheFxThread"), stall.callSite());
+        assertTrue(detector.dumpStalls().contains("blockOnTheFxThread"));
+    }
+
+    private static void blockOnTheFxThread() {
+        try {
+            Thread.sleep(300);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.jambo.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedPlaylistTest {
+    private static File song(int number) {
+        return new File("/music/song-" + number + ".mp3");
+    }
+
+    @Test
+    void add_WhenPathAlreadyPresent_ShouldReject() {
+        IndexedPlaylist playlist = new IndexedPlaylist();
+        assertTrue(playlist.add(song(1)));
+        assertFalse(playlist.add(song(1)));
+        assertTrue(playlist.contains(song(1)));
+        assertFalse(playlist.contains(song(2)));
+        assertEquals(List.of(song(1)), playlist.snapshot());
+    }
+
+    @Test
+    void indexOfEntry_WhenListIsEdited_ShouldStayStable() {
+        IndexedPlaylist playlist = new IndexedPlaylist(List.of(song(1), song(2), song(3)));
+        long third = playlist.entryIdAt(2);
+        playlist.insert(0, song(0));
+        playlist.remove(song(1));
+        assertEquals(2, playlist.indexOfEntry(third));
+        assertEquals(song(3), playlist.get(playlist.indexOfEntry(third)));
+        assertEquals(-1, playlist.indexOf(song(1)));
+    }
+
+    @Test
+    void edits_WhenRandomised_ShouldMatchReferenceList() {
+        Random random = new Random(42);
+        IndexedPlaylist playlist = new IndexedPlaylist();
+        List<File> expected = new ArrayList<>();
+        for (int step = 0; step < 20_000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 5 || expected.isEmpty()) {
+                File song = song(random.nextInt(5_000));
+                int index = random.nextInt(expected.size() + 1);
+                boolean added = playlist.insert(index, song);
+                assertEquals(!expected.contains(song), added);
+                if (added) {
+                    expected.add(index, song);
+                }
+            } else if (operation < 8) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), playlist.remove(index));
+            } else if (operation < 9) {
+                int index = random.nextInt(expected.size());
+                assertEquals(index, playlist.indexOf(expected.get(index)));
+            } else {
+                int bucket = random.nextInt(50);
+                List<File> removed = playlist.removeIf(file -> file.getName().hashCode() % 50 == bucket);
+                List<File> expectedRemoved = expected.stream()
+                        .filter(file -> file.getName().hashCode() % 50 == bucket).toList();
+                expected.removeAll(expectedRemoved);
+                assertEquals(expectedRemoved, removed);
+            }
+            assertEquals(expected.size(), playlist.size());
+        }
+        assertEquals(expected, playlist.snapshot());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), playlist.get(i));
+            assertEquals(i, playlist.indexOf(expected.get(i)));
+        }
+    }
+
+    @Test
+    void snapshot_WhenUnchanged_ShouldReturnCachedList() {
+        IndexedPlaylist playlist = new IndexedPlaylist(List.of(song(1), song(2)));
+        List<File> first = playlist.snapshot();
+        assertSame(first, playlist.snapshot());
+        playlist.add(song(3));
+        assertNotSame(first, playlist.snapshot());
+        assertEquals(List.of(song(1), song(2)), first);
+        assertThrows(UnsupportedOperationException.class, () -> first.add(song(4)));
+    }
+}
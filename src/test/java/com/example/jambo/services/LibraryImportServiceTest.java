@@ -0,0 +1,104 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LibraryImportServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private final MetadataInterface metadataService = mock(MetadataInterface.class);
+    private final MetadataExtractionService extractionService = new MetadataExtractionService(metadataService, 4, 4);
+
+    @AfterEach
+    void shutdown() {
+        extractionService.shutdown();
+    }
+
+    private File mp3(String name) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 8; i++) {
+            byte[] frame = new byte[417];
+            frame[0] = (byte) 0xFF;
+            frame[1] = (byte) 0xFB;
+            frame[2] = (byte) 0x90;
+            out.writeBytes(frame);
+        }
+        Path file = tempDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, out.toByteArray());
+        return file.toFile();
+    }
+
+    @Test
+    void importDirectory_WhenExtractionFinishesOutOfOrder_ShouldDeliverBoundedBatchesInPathOrder() throws Exception {
+        List<File> expected = new ArrayList<>();
+        for (String name : List.of("a.mp3", "b.mp3", "b/x.mp3", "b/z/w.mp3", "b-c/y.mp3")) {
+            expected.add(mp3(name));
+        }
+        for (int i = 0; i < 12; i++) {
+            expected.add(mp3(String.format("m/track-%02d.mp3", i)));
+        }
+        File known = mp3("m/known.mp3");
+        Files.write(tempDir.resolve("cover.jpg"), new byte[]{1, 2, 3});
+        expected.sort(Comparator.comparing(File::getAbsolutePath));
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        when(metadataService.formatSongMetadata(any())).thenAnswer(invocation -> {
+            File file = invocation.getArgument(0);
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(file.getName().hashCode() % 2 == 0 ? 20 : 1);
+            running.decrementAndGet();
+            if (file.getName().equals("track-05.mp3")) {
+                throw new IOException("bad tag");
+            }
+            return "info:" + file.getName();
+        });
+        List<List<LibraryImportService.ImportedTrack>> batches = new CopyOnWriteArrayList<>();
+        LibraryImportService importService = new LibraryImportService(extractionService, 3, 5, 4);
+
+        LibraryImportService.ImportProgress progress = importService.importDirectory(tempDir,
+                Set.of(known.getAbsolutePath()), Runnable::run, new LibraryImportService.ImportListener() {
+                    @Override
+                    public void onBatch(List<LibraryImportService.ImportedTrack> batch) {
+                        batches.add(batch);
+                    }
+
+                    @Override
+                    public void onProgress(LibraryImportService.ImportProgress progress) {
+                    }
+                }).get(10, TimeUnit.SECONDS);
+
+        assertEquals(expected, batches.stream().flatMap(List::stream).map(LibraryImportService.ImportedTrack::file).toList());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 4));
+        assertTrue(batches.stream().flatMap(List::stream)
+                .allMatch(track -> track.formattedInfo().equals(track.file().getName().equals("track-05.mp3")
+                        ? "track-05.mp3" : "info:" + track.file().getName())));
+        assertEquals(1, extractionService.getStats().failed());
+        assertTrue(peak.get() <= 3, "peak " + peak.get());
+        assertTrue(progress.done());
+        assertEquals(expected.size() + 1, progress.discovered());
+        assertEquals(1, progress.skipped());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.jambo.services;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryWatchServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private final BlockingQueue<LibraryWatchService.LibraryChange> changes = new LinkedBlockingQueue<>();
+    private LibraryWatchService watchService;
+
+    @AfterEach
+    void close() {
+        watchService.close();
+    }
+
+    private static byte[] mp3Frames() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 8; i++) {
+            byte[] frame = new byte[417];
+            frame[0] = (byte) 0xFF;
+            frame[1] = (byte) 0xFB;
+            frame[2] = (byte) 0x90;
+            out.writeBytes(frame);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void record_WhenEventsArriveWithinQuietPeriod_ShouldCoalescePerFile() throws Exception {
+        Path library = Files.createDirectories(tempDir.resolve("library"));
+        Path replaced = Files.write(library.resolve("replaced.mp3"), mp3Frames());
+        Path removed = Files.write(library.resolve("removed.mp3"), mp3Frames());
+        Path rootsFile = tempDir.resolve("roots.json");
+        Files.writeString(rootsFile, new Gson().toJson(List.of(Map.of("path", library.toString(), "playlist", "Default"))));
+        watchService = new LibraryWatchService(rootsFile, 500);
+        watchService.start(changes::add);
+
+        Files.delete(replaced);
+        Thread.sleep(100);
+        Files.write(replaced, mp3Frames());
+        Path temporary = Files.write(library.resolve("download.mp3.part"), mp3Frames());
+        Thread.sleep(100);
+        Files.delete(temporary);
+        Path added = Files.write(library.resolve("added.mp3"), mp3Frames());
+        Thread.sleep(100);
+        Files.write(added, mp3Frames(), StandardOpenOption.APPEND);
+        Files.delete(removed);
+
+        LibraryWatchService.LibraryChange change = changes.poll(5, TimeUnit.SECONDS);
+        assertNotNull(change);
+        assertEquals("Default", change.playlistName());
+        assertEquals(List.of(added.toFile()), change.created());
+        assertEquals(List.of(replaced.toFile()), change.modified());
+        assertEquals(List.of(removed.toFile()), change.deleted());
+        assertNull(changes.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void close_ShouldStopDeliveringChanges() throws Exception {
+        Path library = Files.createDirectories(tempDir.resolve("library"));
+        Path rootsFile = tempDir.resolve("roots.json");
+        watchService = new LibraryWatchService(rootsFile, 200);
+        watchService.start(changes::add);
+        watchService.addRoot(library, "Default");
+        Thread.sleep(200);
+
+        watchService.close();
+        Files.write(library.resolve("late.mp3"), mp3Frames());
+
+        assertNull(changes.poll(1, TimeUnit.SECONDS));
+        assertTrue(Files.readString(rootsFile).contains(new Gson().toJson(library.toString())));
+    }
+}
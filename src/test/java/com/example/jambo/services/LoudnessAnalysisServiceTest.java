@@ -0,0 +1,70 @@
+package com.example.jambo.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoudnessAnalysisServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private final FakeMp3Decoder decoder = new FakeMp3Decoder();
+
+    private LoudnessAnalysisService service(LoudnessAnalysisService.Mode mode) {
+        return new LoudnessAnalysisService(decoder, mode, 0, 2, new MetricsRegistry(), tempDir.resolve("loudness.bin"));
+    }
+
+    private static void awaitIdle(LoudnessAnalysisService service) throws InterruptedException {
+        for (int i = 0; i < 500 && service.getProgress().pending() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, service.getProgress().pending());
+    }
+
+    @Test
+    void integratedLoudness_WithSineAtMinus20Dbfs_ShouldMeasureMinus20Lufs() {
+        LoudnessMeter meter = new LoudnessMeter();
+        FakeMp3Decoder.sine(0.1, 48000, 5).write(meter::accept);
+        assertEquals(-20.0, meter.integratedLoudness(), 0.1);
+        assertEquals(-20.0, LoudnessMeter.integratedLoudness(meter.histogram()), 0.3);
+        assertEquals(0.1, meter.samplePeak(), 0.001);
+        assertEquals(Double.NEGATIVE_INFINITY, new LoudnessMeter().integratedLoudness());
+    }
+
+    @Test
+    void getGainDb_WhenAnalysed_ShouldApplyModeAndResumeFromCache() throws Exception {
+        File loud = decoder.track(tempDir.resolve("album/loud.mp3"), FakeMp3Decoder.sine(0.5, 48000, 10));
+        File quiet = decoder.track(tempDir.resolve("album/quiet.mp3"), FakeMp3Decoder.sine(0.05, 48000, 10));
+        File cover = decoder.track(tempDir.resolve("album/cover.jpg"), null);
+
+        LoudnessAnalysisService tracks = service(LoudnessAnalysisService.Mode.TRACK);
+        tracks.onSongsAdded("Default", List.of(loud, quiet, cover));
+        awaitIdle(tracks);
+        assertEquals(2, decoder.decodes());
+        assertEquals(new LoudnessAnalysisService.Progress(2, 1, 0), tracks.getProgress());
+        assertEquals(-18.0 + 6.0, tracks.getGainDb(loud), 0.2);
+        assertEquals(-18.0 + 26.0, tracks.getGainDb(quiet), 0.2);
+        assertEquals(0.0, tracks.getGainDb(cover));
+        tracks.shutdown();
+
+        LoudnessAnalysisService albums = service(LoudnessAnalysisService.Mode.ALBUM);
+        albums.onSongsAdded("Default", List.of(loud, quiet, cover));
+        awaitIdle(albums);
+        assertEquals(2, decoder.decodes());
+        double albumGain = albums.getGainDb(loud);
+        assertEquals(albumGain, albums.getGainDb(quiet));
+        assertTrue(albumGain < tracks.getGainDb(quiet) && albumGain > tracks.getGainDb(loud) - 1);
+
+        Files.write(quiet.toPath(), new byte[]{4, 5, 6, 7});
+        albums.analyse(List.of(loud, quiet));
+        awaitIdle(albums);
+        assertEquals(3, decoder.decodes());
+        albums.shutdown();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataCacheServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private Path cacheFile() {
+        return tempDir.resolve("metadata_cache.bin");
+    }
+
+    private File song(String name) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.write(file, new byte[]{1, 2, 3});
+        return file.toFile();
+    }
+
+    @Test
+    void save_WhenReloaded_ShouldRestoreEntriesIncludingNullHashes() throws Exception {
+        File tagged = song("tagged.mp3");
+        File untagged = song("untagged.mp3");
+        File hashless = song("hashless.mp3");
+        MetadataCacheService cache = new MetadataCacheService(cacheFile());
+        cache.put(tagged, new MetadataInterface.TrackInfo("MP3", "320", "44100", "Artist", "Album", "Title", 215,
+                new MetadataInterface.ArtworkRef("abc123", "image/jpeg", 4096)));
+        cache.put(untagged, new MetadataInterface.TrackInfo("MP3", null, null, null, null, null, 0, null));
+        cache.put(hashless, new MetadataInterface.TrackInfo("MP3", "320", "44100", "Artist", "Album", "Other", 180,
+                new MetadataInterface.ArtworkRef(null, "image/png", 0)));
+        cache.save();
+
+        MetadataCacheService reloaded = new MetadataCacheService(cacheFile());
+        assertEquals(3, reloaded.size());
+        assertEquals(cache.get(tagged), reloaded.get(tagged));
+        assertEquals(new MetadataInterface.TrackInfo("MP3", "", "", "", "", "", 0, null), reloaded.get(untagged).info());
+        MetadataInterface.ArtworkRef artwork = reloaded.get(hashless).info().artwork();
+        assertNull(artwork.hash());
+        assertEquals("image/png", artwork.mimeType());
+    }
+
+    @Test
+    void load_WhenFormatVersionDiffers_ShouldStartEmpty() throws Exception {
+        File tagged = song("tagged.mp3");
+        MetadataCacheService cache = new MetadataCacheService(cacheFile());
+        cache.put(tagged, new MetadataInterface.TrackInfo("MP3", "320", "44100", "Artist", "Album", "Title", 215, null));
+        cache.save();
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(cacheFile()))) {
+            out.writeInt(0x4A4D4331);
+            out.writeInt(2);
+            out.writeInt(0);
+        }
+
+        MetadataCacheService reloaded = new MetadataCacheService(cacheFile());
+        assertEquals(0, reloaded.size());
+        assertNull(reloaded.get(tagged));
+    }
+
+    @Test
+    void load_WhenFileIsTruncated_ShouldStartEmptyAndSaveAgain() throws Exception {
+        File first = song("first.mp3");
+        File second = song("second.mp3");
+        MetadataCacheService cache = new MetadataCacheService(cacheFile());
+        cache.put(first, new MetadataInterface.TrackInfo("MP3", "320", "44100", "Artist", "Album", "First", 215, null));
+        cache.put(second, new MetadataInterface.TrackInfo("MP3", "320", "44100", "Artist", "Album", "Second", 180, null));
+        cache.save();
+        byte[] saved = Files.readAllBytes(cacheFile());
+        Files.write(cacheFile(), Arrays.copyOf(saved, saved.length - 10));
+
+        MetadataCacheService truncated = new MetadataCacheService(cacheFile());
+        assertEquals(0, truncated.size());
+        assertNull(truncated.get(first));
+
+        truncated.put(first, new MetadataInterface.TrackInfo("MP3", "320", "44100", "Artist", "Album", "First", 215, null));
+        truncated.save();
+        assertEquals(1, new MetadataCacheService(cacheFile()).size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class MetadataExtractionServiceTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private MetadataExtractionService extractionService;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        extractionService.shutdown();
+    }
+
+    // Files under /slow and /fast are treated as two separate devices.
+    private void start(int threads, int perDeviceLimit) {
+        extractionService = new MetadataExtractionService(mock(MetadataInterface.class), threads, perDeviceLimit,
+                directory -> directory.getName(0).toString());
+    }
+
+    private static File song(String device, int number) {
+        return new File("/" + device + "/song-" + number + ".mp3");
+    }
+
+    private CompletableFuture<File> blockUntilReleased(File file) {
+        return extractionService.submit(file, MetadataExtractionService.Priority.BACKGROUND, song -> {
+            release.await();
+            return song;
+        });
+    }
+
+    @Test
+    void submit_WhenDeviceIsBusy_ShouldRunByPriorityOnceItFrees() throws Exception {
+        start(1, 1);
+        List<String> order = new CopyOnWriteArrayList<>();
+        CompletableFuture<File> blocker = blockUntilReleased(song("slow", 0));
+        CompletableFuture<?>[] jobs = {
+                extractionService.submit(song("slow", 1), MetadataExtractionService.Priority.BACKGROUND, file -> order.add("background")),
+                extractionService.submit(song("slow", 2), MetadataExtractionService.Priority.PREFETCH, file -> order.add("prefetch")),
+                extractionService.submit(song("slow", 3), MetadataExtractionService.Priority.VISIBLE, file -> order.add("visible-old")),
+                extractionService.submit(song("slow", 4), MetadataExtractionService.Priority.VISIBLE, file -> order.add("visible-new"))
+        };
+
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        CompletableFuture.allOf(jobs).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("visible-new", "visible-old", "prefetch", "background"), order);
+    }
+
+    @Test
+    void submit_WhenDeviceIsSaturated_ShouldRunOtherDevicesAndRespectTheLimit() throws Exception {
+        start(4, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CompletableFuture<?>[] slow = new CompletableFuture<?>[6];
+        for (int i = 0; i < slow.length; i++) {
+            slow[i] = extractionService.submit(song("slow", i), MetadataExtractionService.Priority.BACKGROUND, file -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                release.await();
+                return running.decrementAndGet();
+            });
+        }
+
+        File fast = song("fast", 0);
+        assertEquals(fast, extractionService.submit(fast, MetadataExtractionService.Priority.VISIBLE, file -> file)
+                .get(5, TimeUnit.SECONDS));
+        assertEquals(4, extractionService.getStats().queueDepth());
+
+        release.countDown();
+        CompletableFuture.allOf(slow).get(5, TimeUnit.SECONDS);
+        assertEquals(2, peak.get());
+    }
+
+    @Test
+    void cancel_WhenJobHasNotStarted_ShouldSkipItAndFreeItsSlot() throws Exception {
+        start(1, 1);
+        CompletableFuture<File> blocker = blockUntilReleased(song("slow", 0));
+        AtomicInteger ran = new AtomicInteger();
+        CompletableFuture<Integer> waiting = extractionService.submit(song("slow", 1),
+                MetadataExtractionService.Priority.BACKGROUND, file -> ran.incrementAndGet());
+        CompletableFuture<Integer> handedOff = extractionService.submit(song("fast", 1),
+                MetadataExtractionService.Priority.BACKGROUND, file -> ran.incrementAndGet());
+
+        assertTrue(waiting.cancel(false));
+        assertTrue(handedOff.cancel(false));
+        CompletableFuture<File> next = extractionService.submit(song("fast", 2),
+                MetadataExtractionService.Priority.BACKGROUND, file -> file);
+        release.countDown();
+
+        assertEquals(song("slow", 0), blocker.get(5, TimeUnit.SECONDS));
+        assertEquals(song("fast", 2), next.get(5, TimeUnit.SECONDS));
+        assertEquals(0, ran.get());
+        assertEquals(2, extractionService.getStats().cancelled());
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    private File wav(String name) throws Exception {
+        int dataLength = 44100 * 4;
+        ByteBuffer wav = ByteBuffer.allocate(44 + dataLength).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes(StandardCharsets.ISO_8859_1)).putInt(36 + dataLength)
+                .put("WAVEfmt ".getBytes(StandardCharsets.ISO_8859_1)).putInt(16)
+                .putShort((short) 1).putShort((short) 2).putInt(44100).putInt(176400)
+                .putShort((short) 4).putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.ISO_8859_1)).putInt(dataLength);
+        Path file = tempDir.resolve(name);
+        Files.write(file, wav.array());
+        return file.toFile();
+    }
+
+    @Test
+    void getTrackInfo_WhenCallersAskForDifferentViews_ShouldParseOnce() throws Exception {
+        File song = wav("song.wav");
+        MetadataCacheService cache = new MetadataCacheService(tempDir.resolve("metadata_cache.bin"));
+        MetadataService service = new MetadataService(cache, new ArtworkCacheService(1 << 20, 16, null), metrics);
+        MetricsRegistry.Timer parses = metrics.timer("metadata.parse");
+
+        MetadataInterface.TrackInfo info = service.getTrackInfo(song);
+        assertEquals("Unknown Artist - Unknown Album - song.wav (0:01)", service.formatSongMetadata(song));
+        assertEquals(info.toAudioMetadata(), service.getFileMetadata(song));
+        assertNull(service.getAlbumArt(song));
+        cache.invalidate(song);
+        assertSame(info, service.getTrackInfo(song));
+        assertEquals(1, parses.count());
+
+        assertTrue(song.setLastModified(song.lastModified() - 10_000));
+        assertEquals(info, service.getTrackInfo(song));
+        assertEquals(2, parses.count());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.jambo.services;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+    @Test
+    void percentile_ShouldStayWithinBucket() {
+        MetricsRegistry.Histogram histogram = new MetricsRegistry().histogram("sizes");
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(500.5, histogram.mean(), 1e-9);
+        assertEquals(1000, histogram.max());
+        long median = histogram.percentile(0.5);
+        assertTrue(median >= 500 && median < 1024, "p50 " + median);
+        assertEquals(1000, histogram.percentile(0.99));
+    }
+
+    @Test
+    void start_ShouldExposeSnapshotOverJmx() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("library.files.scanned").add(42);
+        metrics.timer("metadata.parse").record(3_000_000);
+        metrics.gauge("metadata.cache.hit-rate", () -> 0.75);
+        assertThrows(IllegalArgumentException.class, () -> metrics.timer("library.files.scanned"));
+
+        Map<String, Number> snapshot = metrics.snapshot();
+        assertEquals(42L, snapshot.get("library.files.scanned.count"));
+        assertEquals(3.0, snapshot.get("metadata.parse.mean").doubleValue(), 1e-9);
+
+        metrics.start();
+        try {
+            ObjectName name = new ObjectName(MetricsRegistry.OBJECT_NAME);
+            assertEquals(0.75, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "metadata.cache.hit-rate"));
+        } finally {
+            metrics.close();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(MetricsRegistry.OBJECT_NAME)));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.tag.FieldKey;
+import org.jaudiotagger.tag.Tag;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class Mp3ProbeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Path root = Path.of(args.length > 0 ? args[0] : ".");
+        List<File> files;
+        try (Stream<Path> paths = Files.walk(root)) {
+            files = paths.filter(path -> path.toString().toLowerCase().endsWith(".mp3"))
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        }
+        if (files.isEmpty()) {
+            System.out.println("No mp3 files found under " + root);
+            return;
+        }
+
+        Mp3Probe probe = new Mp3Probe();
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            int audioFileIoFailures = 0;
+            for (File file : files) {
+                try {
+                    AudioFile audioFile = AudioFileIO.read(file);
+                    Tag tag = audioFile.getTag();
+                    if (tag != null) {
+                        tag.getFirst(FieldKey.ARTIST);
+                        tag.getFirst(FieldKey.ALBUM);
+                        tag.getFirst(FieldKey.TITLE);
+                    }
+                    audioFile.getAudioHeader().getTrackLength();
+                } catch (Exception e) {
+                    audioFileIoFailures++;
+                }
+            }
+            long audioFileIoNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int fallbacks = 0;
+            for (File file : files) {
+                MetadataInterface.TrackInfo info = probe.probe(file);
+                if (info == null) {
+                    fallbacks++;
+                }
+            }
+            long probeNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: %d files%n", round + 1, files.size());
+            System.out.printf("  AudioFileIO.read: %8.1f us/file (%d failures)%n",
+                    audioFileIoNanos / 1000.0 / files.size(), audioFileIoFailures);
+            System.out.printf("  Mp3Probe:         %8.1f us/file (%d would fall back)%n",
+                    probeNanos / 1000.0 / files.size(), fallbacks);
+        }
+    }
+}
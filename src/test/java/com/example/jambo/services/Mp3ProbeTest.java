@@ -0,0 +1,125 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Mp3ProbeTest {
+    private static final int FRAME_LENGTH = 417;
+
+    @TempDir
+    Path tempDir;
+
+    private final Mp3Probe probe = new Mp3Probe();
+
+    private static void writeTextFrame(ByteArrayOutputStream out, String id, String text) {
+        byte[] value = text.getBytes(StandardCharsets.ISO_8859_1);
+        int size = value.length + 1;
+        out.writeBytes(id.getBytes(StandardCharsets.ISO_8859_1));
+        out.writeBytes(new byte[]{(byte) (size >>> 24), (byte) (size >>> 16), (byte) (size >>> 8), (byte) size, 0, 0});
+        out.write(0);
+        out.writeBytes(value);
+    }
+
+    private static byte[] id3v23Tag(String artist, String album, String title) {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        writeTextFrame(frames, "TPE1", artist);
+        writeTextFrame(frames, "TALB", album);
+        writeTextFrame(frames, "TIT2", title);
+        int size = frames.size();
+
+        ByteArrayOutputStream tag = new ByteArrayOutputStream();
+        tag.writeBytes(new byte[]{'I', 'D', '3', 3, 0, 0,
+                (byte) ((size >>> 21) & 0x7F), (byte) ((size >>> 14) & 0x7F),
+                (byte) ((size >>> 7) & 0x7F), (byte) (size & 0x7F)});
+        tag.writeBytes(frames.toByteArray());
+        return tag.toByteArray();
+    }
+
+    private static byte[] mpegFrame(boolean xing, int xingFrames) {
+        byte[] frame = new byte[FRAME_LENGTH];
+        frame[0] = (byte) 0xFF;
+        frame[1] = (byte) 0xFB;
+        frame[2] = (byte) 0x90;
+        frame[3] = 0x00;
+        if (xing) {
+            int offset = 4 + 32;
+            System.arraycopy("Xing".getBytes(StandardCharsets.ISO_8859_1), 0, frame, offset, 4);
+            frame[offset + 7] = 0x01;
+            frame[offset + 8] = (byte) (xingFrames >>> 24);
+            frame[offset + 9] = (byte) (xingFrames >>> 16);
+            frame[offset + 10] = (byte) (xingFrames >>> 8);
+            frame[offset + 11] = (byte) xingFrames;
+        }
+        return frame;
+    }
+
+    private File writeMp3(String name, byte[] tag, int frames, boolean xing) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(tag);
+        if (xing) {
+            out.writeBytes(mpegFrame(true, frames));
+        }
+        for (int i = 0; i < frames; i++) {
+            out.writeBytes(mpegFrame(false, 0));
+        }
+        Path path = tempDir.resolve(name);
+        Files.write(path, out.toByteArray());
+        return path.toFile();
+    }
+
+    @Test
+    void probe_WithId3v23Tag_ShouldReadTextFrames() throws Exception {
+        File file = writeMp3("tagged.mp3", id3v23Tag("Artist", "Album", "Title"), 200, false);
+
+        MetadataInterface.TrackInfo info = probe.probe(file);
+
+        assertNotNull(info);
+        assertEquals("Artist", info.artist());
+        assertEquals("Album", info.album());
+        assertEquals("Title", info.title());
+        assertEquals("MPEG-1 Layer 3", info.format());
+        assertEquals("128", info.bitRate());
+        assertEquals("44100", info.sampleRate());
+        assertNull(info.artwork());
+    }
+
+    @Test
+    void probe_WithoutXingHeader_ShouldEstimateCbrDuration() throws Exception {
+        File file = writeMp3("cbr.mp3", new byte[0], 200, false);
+
+        MetadataInterface.TrackInfo info = probe.probe(file);
+
+        assertNotNull(info);
+        assertEquals(5, info.durationSeconds());
+        assertEquals("cbr.mp3", info.title());
+        assertEquals("Unknown Artist", info.artist());
+    }
+
+    @Test
+    void probe_WithXingHeader_ShouldUseFrameCount() throws Exception {
+        File file = writeMp3("vbr.mp3", new byte[0], 1000, true);
+
+        MetadataInterface.TrackInfo info = probe.probe(file);
+
+        assertNotNull(info);
+        assertEquals(26, info.durationSeconds());
+        assertTrue(info.bitRate().startsWith("~"));
+    }
+
+    @Test
+    void probe_WhenNotMpeg_ShouldReturnNull() throws Exception {
+        Path path = tempDir.resolve("junk.mp3");
+        Files.write(path, new byte[4096]);
+
+        assertNull(probe.probe(path.toFile()));
+    }
+}
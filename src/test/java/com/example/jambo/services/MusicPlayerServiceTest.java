@@ -10,6 +10,8 @@ import javafx.scene.media.MediaPlayer;
 import com.example.jambo.controllers.VolumeController;
 import com.example.jambo.event.MediaEventHandler;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -68,6 +70,19 @@ class MusicPlayerServiceTest {
         verify(mediaPlayer, times(2)).play();
     }
 
+    @Test
+    void playPrepared_WhenSourceMatches_ShouldSwapInPreparedPlayer() {
+        when(media.getSource()).thenReturn("file:/music/next.mp3");
+        musicPlayerService.prepareNext(media);
+
+        assertFalse(musicPlayerService.playPrepared("file:/music/other.mp3"));
+        assertTrue(musicPlayerService.playPrepared("file:/music/next.mp3"));
+
+        verify(volumeController).bindToMediaPlayer(mediaPlayer);
+        verify(mediaPlayer).play();
+        assertFalse(musicPlayerService.playPrepared("file:/music/next.mp3"));
+    }
+
     @Test
     void pauseMedia_WhenPlaying_ShouldPause() {
         musicPlayerService.playMedia(media);
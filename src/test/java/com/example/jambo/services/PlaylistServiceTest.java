@@ -0,0 +1,107 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.PlaylistInterface;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaylistServiceTest {
+    private final AtomicInteger notifications = new AtomicInteger();
+    private final List<PlaylistInterface.PlaylistChangeEvent> events = new ArrayList<>();
+    private PlaylistService playlistService;
+
+    private static File song(int number) {
+        return new File("/music/song-" + number + ".mp3");
+    }
+
+    @BeforeEach
+    void setUp() {
+        playlistService = new PlaylistService();
+        playlistService.addPlaylistChangeListener(new PlaylistInterface.PlaylistChangeListener() {
+            @Override
+            public void onPlaylistChanged(String playlistName, List<PlaylistInterface.PlaylistChangeEvent> changes) {
+                notifications.incrementAndGet();
+                events.addAll(changes);
+            }
+
+            @Override
+            public void onCurrentPlaylistChanged(String newPlaylistName, List<File> songs, long version) {
+            }
+
+            @Override
+            public void addSong(File songFile, String formattedInfo) {
+            }
+        });
+    }
+
+    @Test
+    void addSongs_WhenBulkEdit_ShouldNotifyOnce() {
+        List<File> added = playlistService.addSongs(IntStream.range(0, 1000).mapToObj(PlaylistServiceTest::song).toList());
+        assertEquals(1000, added.size());
+        assertEquals(1, notifications.get());
+
+        List<File> removed = playlistService.removeSongs(new int[]{5, 1, 5, 999, 1000});
+        assertEquals(List.of(song(1), song(5), song(999)), removed);
+        assertEquals(997, playlistService.getCurrentPlaylistSongs().size());
+        assertEquals(2, notifications.get());
+    }
+
+    @Test
+    void batch_WhenEditFails_ShouldRollBack() {
+        playlistService.addSongs(List.of(song(1), song(2), song(3)));
+        notifications.set(0);
+
+        assertThrows(IllegalStateException.class, () -> playlistService.batch(batch -> {
+            batch.remove(0);
+            batch.add(song(4));
+            throw new IllegalStateException("abort");
+        }));
+        assertEquals(List.of(song(1), song(2), song(3)), playlistService.getCurrentPlaylistSongs());
+        assertEquals(0, notifications.get());
+
+        playlistService.batch(batch -> {
+            batch.remove(song(2));
+            batch.add(song(4));
+        });
+        assertEquals(List.of(song(1), song(3), song(4)), playlistService.getCurrentPlaylistSongs());
+        assertEquals(1, notifications.get());
+    }
+
+    @Test
+    void changeEvents_WhenReplayed_ShouldReproduceList() {
+        playlistService.addSongs(IntStream.range(0, 10).mapToObj(PlaylistServiceTest::song).toList());
+        playlistService.removeSongs(new int[]{2, 3, 7});
+        playlistService.moveSong(0, 4);
+        playlistService.replaceSong("Default", 1, song(42));
+        playlistService.batch(batch -> {
+            batch.add(song(50));
+            batch.remove(0);
+        });
+
+        List<File> replayed = new ArrayList<>();
+        long version = -1;
+        for (PlaylistInterface.PlaylistChangeEvent event : events) {
+            assertTrue(event.version() > version);
+            version = event.version();
+            if (event instanceof PlaylistInterface.PlaylistChangeEvent.Inserted inserted) {
+                replayed.addAll(inserted.from(), inserted.songs());
+            } else if (event instanceof PlaylistInterface.PlaylistChangeEvent.Removed removed) {
+                for (int i = removed.indices().length - 1; i >= 0; i--) {
+                    replayed.remove(removed.indices()[i]);
+                }
+            } else if (event instanceof PlaylistInterface.PlaylistChangeEvent.Moved moved) {
+                replayed.add(moved.to(), replayed.remove(moved.from()));
+            } else if (event instanceof PlaylistInterface.PlaylistChangeEvent.Replaced replaced) {
+                replayed.set(replaced.index(), replaced.song());
+            }
+        }
+        assertEquals(playlistService.getCurrentPlaylistSongs(), replayed);
+    }
+}
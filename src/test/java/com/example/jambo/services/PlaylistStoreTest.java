@@ -0,0 +1,133 @@
+package com.example.jambo.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaylistStoreTest {
+    @TempDir
+    Path tempDir;
+
+    private PlaylistStore newStore() {
+        return new PlaylistStore(tempDir.resolve("playlists.bin"), tempDir.resolve("playlists.journal"), 1000);
+    }
+
+    private static String song(String name) {
+        return File.separator + "music" + File.separator + name;
+    }
+
+    @Test
+    void load_AfterRestart_ShouldReplayJournal() {
+        PlaylistStore store = newStore();
+        store.load();
+        store.createPlaylist("Rock");
+        store.addSong("Rock", song("a.mp3"));
+        store.addSong("Rock", song("b.mp3"));
+        store.addSong("Default", song("c.mp3"));
+        store.removeSong("Rock", song("a.mp3"));
+        store.addSongs("Rock", List.of(song("d.mp3"), song("e.mp3")));
+        store.moveSong("Rock", song("e.mp3"), 0);
+        store.close();
+
+        Map<String, List<String>> loaded = newStore().load();
+        assertEquals(List.of(song("e.mp3"), song("b.mp3"), song("d.mp3")), loaded.get("Rock"));
+        assertEquals(List.of(song("c.mp3")), loaded.get("Default"));
+    }
+
+    @Test
+    void compact_ShouldFoldJournalIntoSnapshot() {
+        PlaylistStore store = newStore();
+        store.load();
+        store.addSong("Default", song("a.mp3"));
+        store.addSong("Default", song("b.mp3"));
+        store.compact(Map.of("Default", List.of(song("a.mp3"), song("b.mp3"))));
+        store.addSong("Default", song("c.mp3"));
+        store.deletePlaylist("Gone");
+        store.close();
+
+        assertEquals(List.of(song("a.mp3"), song("b.mp3"), song("c.mp3")), newStore().load().get("Default"));
+    }
+
+    @Test
+    void load_WhenLastRecordIsTorn_ShouldIgnoreItAndKeepAppending() throws Exception {
+        PlaylistStore store = newStore();
+        store.load();
+        store.addSong("Default", song("a.mp3"));
+        store.close();
+        Files.write(tempDir.resolve("playlists.journal"), new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        PlaylistStore reopened = newStore();
+        assertEquals(List.of(song("a.mp3")), reopened.load().get("Default"));
+        reopened.addSong("Default", song("b.mp3"));
+        reopened.close();
+
+        assertEquals(List.of(song("a.mp3"), song("b.mp3")), newStore().load().get("Default"));
+    }
+
+    @Test
+    void persist_WhenEditsRaceCompaction_ShouldKeepEveryEdit() throws Exception {
+        PlaylistService playlistService = new PlaylistService(
+                new PlaylistStore(tempDir.resolve("playlists.bin"), tempDir.resolve("playlists.journal"), 1));
+        List<File> songs = IntStream.range(0, 20000).mapToObj(i -> new File(song("song-" + i + ".mp3"))).toList();
+        Thread writer = new Thread(() -> songs.forEach(playlistService::addSong));
+        writer.start();
+        while (writer.isAlive()) {
+            playlistService.persist();
+        }
+        writer.join();
+        playlistService.close();
+
+        PlaylistService reloaded = new PlaylistService(newStore());
+        assertTrue(reloaded.loadPersistedPlaylists());
+        assertEquals(songs, reloaded.getPlaylistSongs("Default"));
+    }
+
+    @Test
+    void load_WhenSnapshotIsCorrupt_ShouldRecoverFromBackupAndReplayJournal() throws Exception {
+        PlaylistStore store = newStore();
+        store.load();
+        store.compact(Map.of("Default", List.of(song("a.mp3"))));
+        store.compact(Map.of("Default", List.of(song("a.mp3"), song("b.mp3"))));
+        store.addSong("Default", song("c.mp3"));
+        store.close();
+        Files.write(tempDir.resolve("playlists.bin"), new byte[]{1, 2, 3});
+
+        PlaylistStore recovered = newStore();
+        assertEquals(List.of(song("a.mp3"), song("c.mp3")), recovered.load().get("Default"));
+        recovered.addSong("Default", song("d.mp3"));
+        recovered.close();
+
+        assertEquals(List.of(song("a.mp3"), song("c.mp3"), song("d.mp3")), newStore().load().get("Default"));
+    }
+
+    @Test
+    void load_WhenSnapshotIsCorruptWithoutBackup_ShouldLeaveJournalUntouched() throws Exception {
+        PlaylistStore store = newStore();
+        store.load();
+        store.compact(Map.of("Default", List.of(song("a.mp3"))));
+        store.addSong("Default", song("b.mp3"));
+        store.close();
+        Path journal = tempDir.resolve("playlists.journal");
+        byte[] journalBefore = Files.readAllBytes(journal);
+        Files.write(tempDir.resolve("playlists.bin"), new byte[]{1, 2, 3});
+
+        PlaylistStore damaged = newStore();
+        assertTrue(damaged.load().isEmpty());
+        damaged.addSong("Default", song("c.mp3"));
+        assertFalse(damaged.needsCompaction(0));
+        damaged.compact(Map.of("Default", List.of(song("c.mp3"))));
+        damaged.close();
+
+        assertArrayEquals(journalBefore, Files.readAllBytes(journal));
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(tempDir.resolve("playlists.bin")));
+    }
+}
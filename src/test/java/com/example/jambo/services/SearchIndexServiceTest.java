@@ -0,0 +1,77 @@
+package com.example.jambo.services;
+
+import com.example.jambo.Interfaces.MetadataInterface;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SearchIndexServiceTest {
+    private static final File NIGHTS = new File("/music/daft/one_more_time.mp3");
+    private static final File CAFE = new File("/music/misc/Caf\u00e9 Del Mar.mp3");
+
+    @Mock
+    private MetadataExtractionService extractionService;
+
+    private SearchIndexService searchIndex;
+
+    private static MetadataInterface.TrackInfo track(String artist, String album, String title) {
+        return new MetadataInterface.TrackInfo("MPEG-1 Layer 3", "320", "44100", artist, album, title, 320, null);
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(extractionService.submitTrackInfo(eq(NIGHTS), any())).thenReturn(
+                CompletableFuture.completedFuture(track("Daft Punk", "Discovery", "One More Time")));
+        when(extractionService.submitTrackInfo(eq(CAFE), any())).thenReturn(
+                CompletableFuture.completedFuture(track("Energy 52", "Caf\u00e9 Del Mar", "Caf\u00e9 Del Mar")));
+        searchIndex = new SearchIndexService(extractionService);
+        searchIndex.onSongsAdded("Default", List.of(NIGHTS, CAFE));
+    }
+
+    @Test
+    void search_WithPrefixes_ShouldMatchMetadataAndPath() {
+        assertEquals(Set.of(NIGHTS), searchIndex.search("daf disc"));
+        assertEquals(Set.of(NIGHTS), searchIndex.search("one_more"));
+        assertEquals(Set.of(NIGHTS, CAFE), searchIndex.search("music"));
+        assertEquals(Set.of(), searchIndex.search("daft energy"));
+    }
+
+    @Test
+    void search_WithDifferentCaseAndAccents_ShouldMatch() {
+        assertEquals(Set.of(CAFE), searchIndex.search("CAFE del"));
+    }
+
+    @Test
+    void onSongsRemoved_WhenSongInAnotherPlaylist_ShouldKeepIt() {
+        searchIndex.onSongsAdded("Chill", List.of(CAFE));
+        searchIndex.onSongsRemoved("Default", List.of(NIGHTS, CAFE));
+        assertEquals(Set.of(CAFE), searchIndex.search("music"));
+        assertEquals(1, searchIndex.size());
+    }
+
+    @Test
+    void addChangeListener_WhenSongsAreAddedOrRemoved_ShouldNotify() {
+        AtomicInteger changes = new AtomicInteger();
+        searchIndex.addChangeListener(changes::incrementAndGet);
+
+        searchIndex.onSongsAdded("Chill", List.of(CAFE));
+        int afterAdd = changes.get();
+        assertTrue(afterAdd >= 1);
+        searchIndex.onSongsRemoved("Chill", List.of(CAFE));
+        assertTrue(changes.get() > afterAdd);
+    }
+}
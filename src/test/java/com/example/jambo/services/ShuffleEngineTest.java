@@ -0,0 +1,97 @@
+package com.example.jambo.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShuffleEngineTest {
+    private static IndexedPlaylist playlist(int size) {
+        return new IndexedPlaylist(IntStream.range(0, size)
+                .mapToObj(number -> new File("/music/song-" + number + ".mp3")).toList());
+    }
+
+    @Test
+    void next_ShouldVisitEveryTrackOncePerCycle() {
+        ShuffleEngine engine = new ShuffleEngine(playlist(500), 7, 100);
+        Set<Integer> played = new HashSet<>();
+        played.add(0);
+        int current = 0;
+        for (int i = 1; i < 500; i++) {
+            current = engine.next(current);
+            assertTrue(played.add(current), "repeated " + current);
+        }
+        assertEquals(500, played.size());
+        assertNotEquals(current, engine.next(current));
+    }
+
+    @Test
+    void previous_ShouldWalkBackThroughBoundedHistory() {
+        ShuffleEngine engine = new ShuffleEngine(playlist(100), 7, 3);
+        List<Integer> played = new ArrayList<>(List.of(10));
+        for (int i = 0; i < 5; i++) {
+            played.add(engine.next(played.get(played.size() - 1)));
+        }
+        int current = played.get(5);
+        for (int back = 4; back >= 2; back--) {
+            current = engine.previous(current);
+            assertEquals(played.get(back), current);
+        }
+        assertEquals(current, engine.previous(current));
+        assertEquals(played.get(3), engine.next(current));
+    }
+
+    @Test
+    void peekNext_ShouldMatchNext() {
+        ShuffleEngine engine = new ShuffleEngine(playlist(1000), 7, 10);
+        int current = 3;
+        for (int i = 0; i < 50; i++) {
+            int peeked = engine.peekNext(current);
+            assertEquals(peeked, engine.peekNext(current));
+            current = engine.next(current);
+            assertEquals(peeked, current);
+        }
+    }
+
+    @Test
+    void next_WhenPlaylistEdited_ShouldKeepPlayedTracks() {
+        IndexedPlaylist playlist = playlist(200);
+        ShuffleEngine engine = new ShuffleEngine(playlist, 7, 100);
+        Set<File> played = new HashSet<>();
+        int current = 0;
+        played.add(playlist.get(current));
+        for (int i = 0; i < 50; i++) {
+            current = engine.next(current);
+            played.add(playlist.get(current));
+        }
+        File playing = playlist.get(current);
+        playlist.insert(0, new File("/music/new.mp3"));
+        playlist.remove(playlist.size() - 1);
+        played.remove(new File("/music/song-199.mp3"));
+        current = playlist.indexOf(playing);
+
+        Set<File> rest = new HashSet<>();
+        for (int i = 0; i < playlist.size() - played.size(); i++) {
+            current = engine.next(current);
+            File next = playlist.get(current);
+            assertFalse(played.contains(next), "replayed " + next);
+            assertTrue(rest.add(next));
+        }
+    }
+
+    @Test
+    void next_WithMillionEntryPlaylist_ShouldScale() {
+        ShuffleEngine engine = new ShuffleEngine(playlist(1_000_000), 7, 1000);
+        int current = 0;
+        for (int i = 0; i < 10_000; i++) {
+            current = engine.next(current);
+        }
+        assertTrue(current >= 0 && current < 1_000_000);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.jambo.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaveformServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private final FakeMp3Decoder decoder = new FakeMp3Decoder();
+
+    private WaveformService service() {
+        return new WaveformService(decoder, 64, tempDir.resolve("peaks"), new MetricsRegistry());
+    }
+
+    @Test
+    void getPeaks_ShouldDownsampleToMinMaxBuckets() throws Exception {
+        WaveformService service = service();
+        WaveformService.Peaks peaks = service.getPeaks(decoder.track(tempDir.resolve("ramp.mp3"), FakeMp3Decoder.ramp(100))).join();
+        assertEquals(64, peaks.bucketCount());
+        assertTrue(peaks.max()[0] <= 2);
+        assertEquals(127, peaks.max()[63]);
+        assertEquals(-128, peaks.min()[63]);
+        for (int bucket = 1; bucket < 64; bucket++) {
+            assertTrue(peaks.max()[bucket] >= peaks.max()[bucket - 1]);
+        }
+        assertNull(service.getPeaks(decoder.track(tempDir.resolve("cover.jpg"), null)).join());
+        service.shutdown();
+    }
+
+    @Test
+    void getPeaks_WhenCached_ShouldDecodeOnceUntilFileChanges() throws Exception {
+        File song = decoder.track(tempDir.resolve("song.mp3"), FakeMp3Decoder.ramp(100));
+        WaveformService first = service();
+        first.prefetch(song);
+        WaveformService.Peaks peaks = first.getPeaks(song).join();
+        assertTrue(first.getPeaks(song).isDone());
+        assertEquals(1, decoder.decodes());
+        first.shutdown();
+
+        WaveformService restarted = service();
+        WaveformService.Peaks stored = restarted.getPeaks(song).join();
+        assertArrayEquals(peaks.min(), stored.min());
+        assertArrayEquals(peaks.max(), stored.max());
+        assertEquals(1, decoder.decodes());
+        restarted.shutdown();
+
+        assertTrue(song.setLastModified(song.lastModified() - 10_000));
+        WaveformService changed = service();
+        changed.getPeaks(song).join();
+        assertEquals(2, decoder.decodes());
+        changed.shutdown();
+    }
+}